@@ -1,5 +1,6 @@
 package com.example.tricol.tricolspringbootrestapi.config;
 
+import com.example.tricol.tricolspringbootrestapi.enums.PermissionName;
 import com.example.tricol.tricolspringbootrestapi.enums.RoleName;
 import com.example.tricol.tricolspringbootrestapi.model.Permission;
 import com.example.tricol.tricolspringbootrestapi.model.RoleApp;
@@ -35,37 +36,10 @@ public class DataInitializer implements CommandLineRunner {
     }
     
     private void initializePermissions() {
-        List<Permission> permissions = Arrays.asList(
-            // Suppliers
-            new Permission("SUPPLIERS_READ", "View suppliers", "SUPPLIERS"),
-            new Permission("SUPPLIERS_WRITE", "Create/Edit/Delete suppliers", "SUPPLIERS"),
-            
-            // Products
-            new Permission("PRODUCTS_READ", "View products", "PRODUCTS"),
-            new Permission("PRODUCTS_WRITE", "Create/Edit/Delete products", "PRODUCTS"),
-            new Permission("PRODUCTS_CONFIGURE_ALERTS", "Configure stock alerts", "PRODUCTS"),
-            
-            // Orders
-            new Permission("ORDERS_READ", "View orders", "ORDERS"),
-            new Permission("ORDERS_WRITE", "Create/Edit orders", "ORDERS"),
-            new Permission("ORDERS_VALIDATE", "Validate orders", "ORDERS"),
-            new Permission("ORDERS_CANCEL", "Cancel orders", "ORDERS"),
-            new Permission("ORDERS_RECEIVE", "Receive orders", "ORDERS"),
-            
-            // Stock
-            new Permission("STOCK_READ", "View stock and lots", "STOCK"),
-            new Permission("STOCK_VALUATION", "View FIFO valuation", "STOCK"),
-            new Permission("STOCK_HISTORY", "View movement history", "STOCK"),
-            
-            // Exit Slips
-            new Permission("EXIT_SLIPS_READ", "View exit slips", "EXIT_SLIPS"),
-            new Permission("EXIT_SLIPS_CREATE", "Create exit slips", "EXIT_SLIPS"),
-            new Permission("EXIT_SLIPS_VALIDATE", "Validate exit slips", "EXIT_SLIPS"),
-            new Permission("EXIT_SLIPS_CANCEL", "Cancel exit slips", "EXIT_SLIPS"),
-            
-            // Administration
-            new Permission("ADMIN_USERS", "Manage users", "ADMIN")
-        );
+        // PermissionName is the registry: one row per constant, its ordinal is the permission's bit
+        List<Permission> permissions = Arrays.stream(PermissionName.values())
+            .map(name -> new Permission(name.name(), name.getDescription(), name.getCategory()))
+            .toList();
         
         permissions.forEach(permission -> {
             if (permissionRepository.findByName(permission.getName()).isEmpty()) {
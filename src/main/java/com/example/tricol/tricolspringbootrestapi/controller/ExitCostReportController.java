@@ -0,0 +1,47 @@
+package com.example.tricol.tricolspringbootrestapi.controller;
+
+import com.example.tricol.tricolspringbootrestapi.dto.response.ExitCostReportResponse;
+import com.example.tricol.tricolspringbootrestapi.service.ExitCostReportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+
+// Validation days, both bounds included; the current month by default
+@RestController
+@RequestMapping("/reports/exit-costs")
+@RequiredArgsConstructor
+public class ExitCostReportController {
+
+    private final ExitCostReportService exitCostReportService;
+
+    @GetMapping("/by-workshop")
+    @PreAuthorize("hasAuthority('STOCK_VALUATION')")
+    public ResponseEntity<ExitCostReportResponse> getCostByWorkshop(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(exitCostReportService.getCostByWorkshop(fromOrDefault(from), toOrDefault(to)));
+    }
+
+    @GetMapping("/by-reason")
+    @PreAuthorize("hasAuthority('STOCK_VALUATION')")
+    public ResponseEntity<ExitCostReportResponse> getCostByReason(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(exitCostReportService.getCostByReason(fromOrDefault(from), toOrDefault(to)));
+    }
+
+    private static LocalDate fromOrDefault(LocalDate from) {
+        return from != null ? from : LocalDate.now().withDayOfMonth(1);
+    }
+
+    private static LocalDate toOrDefault(LocalDate to) {
+        return to != null ? to : LocalDate.now();
+    }
+}
@@ -1,9 +1,14 @@
 package com.example.tricol.tricolspringbootrestapi.controller;
 
 import com.example.tricol.tricolspringbootrestapi.dto.request.CreateExitSlipRequest;
+import com.example.tricol.tricolspringbootrestapi.dto.request.ValidateExitSlipsRequest;
+import com.example.tricol.tricolspringbootrestapi.dto.response.AllocationPreviewResponse;
+import com.example.tricol.tricolspringbootrestapi.dto.response.BatchValidationResponse;
 import com.example.tricol.tricolspringbootrestapi.dto.response.ExitSlipResponse;
+import com.example.tricol.tricolspringbootrestapi.dto.response.ValidationJobResponse;
 import com.example.tricol.tricolspringbootrestapi.enums.ExitSlipStatus;
 import com.example.tricol.tricolspringbootrestapi.service.ExitSlipService;
+import com.example.tricol.tricolspringbootrestapi.service.ExitSlipValidationJobService;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -11,7 +16,9 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -21,6 +28,7 @@ import java.util.List;
 public class ExitSlipController {
     
     private final ExitSlipService exitSlipService;
+    private final ExitSlipValidationJobService exitSlipValidationJobService;
     
     @PostMapping
     @PreAuthorize("hasAuthority('EXIT_SLIPS_CREATE')")
@@ -37,6 +45,38 @@ public class ExitSlipController {
         return ResponseEntity.ok(response);
     }
     
+    @GetMapping("/{id}/allocation-preview")
+    @PreAuthorize("hasAuthority('EXIT_SLIPS_READ')")
+    public ResponseEntity<AllocationPreviewResponse> previewAllocation(@PathVariable Long id) {
+        return ResponseEntity.ok(exitSlipService.previewAllocation(id));
+    }
+    
+    // Queues the validation and answers at once; the job is polled at the Location URL
+    @PostMapping("/{id}/validate-async")
+    @PreAuthorize("hasAuthority('EXIT_SLIPS_VALIDATE')")
+    public ResponseEntity<ValidationJobResponse> submitValidation(@PathVariable Long id) {
+        ValidationJobResponse response = exitSlipValidationJobService.submitValidation(id);
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/exit-slips/validation-jobs/{jobId}")
+                .buildAndExpand(response.getJobId())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(response);
+    }
+    
+    @GetMapping("/validation-jobs/{jobId}")
+    @PreAuthorize("hasAnyAuthority('EXIT_SLIPS_VALIDATE', 'EXIT_SLIPS_READ')")
+    public ResponseEntity<ValidationJobResponse> getValidationJob(@PathVariable Long jobId) {
+        return ResponseEntity.ok(exitSlipValidationJobService.getJob(jobId));
+    }
+    
+    @PostMapping("/validate-batch")
+    @PreAuthorize("hasAuthority('EXIT_SLIPS_VALIDATE')")
+    public ResponseEntity<BatchValidationResponse> validateExitSlips(
+            @Valid @RequestBody ValidateExitSlipsRequest request) {
+        BatchValidationResponse response = exitSlipService.validateExitSlips(request.getSlipIds());
+        return ResponseEntity.ok(response);
+    }
+    
     @PostMapping("/{id}/cancel")
     @PreAuthorize("hasAuthority('EXIT_SLIPS_CANCEL')")
     public ResponseEntity<ExitSlipResponse> cancelExitSlip(@PathVariable Long id) {
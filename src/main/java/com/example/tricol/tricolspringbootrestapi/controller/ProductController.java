@@ -2,6 +2,7 @@ package com.example.tricol.tricolspringbootrestapi.controller;
 
 import com.example.tricol.tricolspringbootrestapi.dto.request.ProductDTO;
 import com.example.tricol.tricolspringbootrestapi.dto.response.ErrorResponse;
+import com.example.tricol.tricolspringbootrestapi.exception.BadRequestException;
 import com.example.tricol.tricolspringbootrestapi.model.Product;
 import com.example.tricol.tricolspringbootrestapi.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -13,6 +14,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -24,6 +27,8 @@ import java.util.List;
 @RequestMapping("/products")
 @Tag(name = "Product Management", description = "APIs for managing products in the inventory system")
 public class ProductController {
+    private static final int MAX_PAGE_SIZE = 200;
+
     @Autowired
     private ProductService productService;
 
@@ -160,18 +165,58 @@ public class ProductController {
 
     @Operation(
             summary = "Get low stock products",
-            description = "Retrieves all products where current stock is below the reorder point"
+            description = "Retrieves a page of products where current stock is below the reorder point, ordered by id"
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Low stock products retrieved successfully",
                     content = @Content(schema = @Schema(implementation = ProductDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Page or size out of range",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
     })
     @GetMapping("/lowstock")
     @PreAuthorize("hasAnyAuthority('PRODUCTS_READ', 'PRODUCTS_WRITE')")
-    public ResponseEntity<List<ProductDTO>> getLowStockProducts(){
-        List<ProductDTO> lowStockProducts = productService.getLowStockProducts();
+    public ResponseEntity<Page<ProductDTO>> getLowStockProducts(
+            @Parameter(description = "Page number (0-based)", example = "0")
+            @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size", example = "20")
+            @RequestParam(defaultValue = "20") int size){
+        if (page < 0) {
+            throw new BadRequestException("page must not be negative");
+        }
+        checkPageSize(size);
+        Page<ProductDTO> lowStockProducts = productService.getLowStockProducts(PageRequest.of(page, size));
         return ResponseEntity.status(HttpStatus.OK).body(lowStockProducts);
     }
+
+    @Operation(
+            summary = "Get low stock products after an id",
+            description = "Retrieves the next low stock products with an id greater than afterId, ordered by id. "
+                    + "Pass the last id of a page to get the next one; the cost does not grow with the depth"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Low stock products retrieved successfully",
+                    content = @Content(schema = @Schema(implementation = ProductDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Page or size out of range",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @GetMapping(value = "/lowstock", params = "afterId")
+    @PreAuthorize("hasAnyAuthority('PRODUCTS_READ', 'PRODUCTS_WRITE')")
+    public ResponseEntity<List<ProductDTO>> getLowStockProductsAfter(
+            @Parameter(description = "Last product id already read, 0 for the first page", example = "0")
+            @RequestParam long afterId,
+            @Parameter(description = "Page size", example = "20")
+            @RequestParam(defaultValue = "20") int size){
+        checkPageSize(size);
+        return ResponseEntity.status(HttpStatus.OK).body(productService.getLowStockProductsAfter(afterId, size));
+    }
+
+    private static void checkPageSize(int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
 }
@@ -0,0 +1,40 @@
+package com.example.tricol.tricolspringbootrestapi.controller;
+
+import com.example.tricol.tricolspringbootrestapi.service.impl.StockEventStream;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Set;
+
+@RestController
+@RequestMapping("/stock/events")
+@RequiredArgsConstructor
+@Tag(name = "Stock Events", description = "Live stock level stream")
+public class StockEventController {
+
+    private final StockEventStream stockEventStream;
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyAuthority('STOCK_READ', 'PRODUCTS_READ')")
+    @Operation(
+            summary = "Subscribe to stock level events",
+            description = "Server-sent events (STOCK_CHANGED, LOW_STOCK, RESTOCKED) published after each committed "
+                    + "order receipt or exit slip validation. Without filters every product is streamed"
+    )
+    public SseEmitter subscribe(
+            @Parameter(description = "Only these products (repeatable)")
+            @RequestParam(name = "productId", required = false) Set<Long> productIds,
+            @Parameter(description = "Only products of these categories (repeatable)")
+            @RequestParam(name = "category", required = false) Set<String> categories) {
+        return stockEventStream.subscribe(productIds, categories);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.tricol.tricolspringbootrestapi.controller;
+
+import com.example.tricol.tricolspringbootrestapi.dto.response.StockAsOfResponse;
+import com.example.tricol.tricolspringbootrestapi.service.StockHistoryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/stock/history")
+@RequiredArgsConstructor
+public class StockHistoryController {
+
+    private final StockHistoryService stockHistoryService;
+
+    @GetMapping("/products/{id}")
+    @PreAuthorize("hasAuthority('STOCK_HISTORY') and hasAuthority('STOCK_VALUATION')")
+    public ResponseEntity<StockAsOfResponse> getProductStockAsOf(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return ResponseEntity.ok(stockHistoryService.getProductStockAsOf(id, at));
+    }
+
+    @GetMapping("/categories/{category}")
+    @PreAuthorize("hasAuthority('STOCK_HISTORY') and hasAuthority('STOCK_VALUATION')")
+    public ResponseEntity<StockAsOfResponse> getCategoryStockAsOf(
+            @PathVariable String category,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return ResponseEntity.ok(stockHistoryService.getCategoryStockAsOf(category, at));
+    }
+}
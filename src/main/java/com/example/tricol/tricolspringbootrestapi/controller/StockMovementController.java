@@ -1,6 +1,8 @@
 package com.example.tricol.tricolspringbootrestapi.controller;
 
 import com.example.tricol.tricolspringbootrestapi.dto.response.StockMovementResponse;
+import com.example.tricol.tricolspringbootrestapi.dto.response.StockMovementSliceResponse;
+import com.example.tricol.tricolspringbootrestapi.exception.BadRequestException;
 import com.example.tricol.tricolspringbootrestapi.model.StockMovement;
 import com.example.tricol.tricolspringbootrestapi.service.StockMovementService;
 import lombok.RequiredArgsConstructor;
@@ -19,6 +21,8 @@ import java.time.LocalDateTime;
 @RequiredArgsConstructor
 public class StockMovementController {
     
+    private static final int MAX_SLICE_SIZE = 200;
+
     private final StockMovementService stockMovementService;
     
     @GetMapping
@@ -45,4 +49,33 @@ public class StockMovementController {
         }
         return ResponseEntity.ok(movements);
     }
+
+    // Cursor mode: no total count and constant cost per page however deep the client scrolls
+    @GetMapping("/cursor")
+    @PreAuthorize("hasAuthority('STOCK_READ')")
+    public ResponseEntity<StockMovementSliceResponse> scrollMovements(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Long productId,
+            @RequestParam(required = false) String reference,
+            @RequestParam(required = false) StockMovement.Type type,
+            @RequestParam(required = false) String lotNumber,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+
+        if (size < 1 || size > MAX_SLICE_SIZE) {
+            throw new BadRequestException("size must be between 1 and " + MAX_SLICE_SIZE);
+        }
+
+        LocalDateTime startDateTime = startDate != null ? startDate.atStartOfDay() : null;
+        LocalDateTime endDateTime = endDate != null ? endDate.atTime(23, 59, 59) : null;
+
+        StockMovementSliceResponse movements = stockMovementService.searchMovementsAfter(
+                startDateTime, endDateTime, productId, reference, type, lotNumber, cursor, size);
+
+        if (movements.getContent().isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(movements);
+    }
 }
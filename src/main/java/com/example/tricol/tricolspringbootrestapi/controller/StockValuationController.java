@@ -0,0 +1,44 @@
+package com.example.tricol.tricolspringbootrestapi.controller;
+
+import com.example.tricol.tricolspringbootrestapi.dto.response.StockValuationResponse;
+import com.example.tricol.tricolspringbootrestapi.dto.response.ValuationReconciliationResponse;
+import com.example.tricol.tricolspringbootrestapi.service.StockValuationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/stock/valuation")
+@RequiredArgsConstructor
+public class StockValuationController {
+
+    private final StockValuationService stockValuationService;
+
+    @GetMapping
+    @PreAuthorize("hasAuthority('STOCK_VALUATION')")
+    public ResponseEntity<StockValuationResponse> getTotalValuation() {
+        return ResponseEntity.ok(stockValuationService.getTotalValuation());
+    }
+
+    @GetMapping("/by-category")
+    @PreAuthorize("hasAuthority('STOCK_VALUATION')")
+    public ResponseEntity<StockValuationResponse> getValuationByCategory() {
+        return ResponseEntity.ok(stockValuationService.getValuationByCategory());
+    }
+
+    @GetMapping("/by-supplier")
+    @PreAuthorize("hasAuthority('STOCK_VALUATION')")
+    public ResponseEntity<StockValuationResponse> getValuationBySupplier() {
+        return ResponseEntity.ok(stockValuationService.getValuationBySupplier());
+    }
+
+    // Scans the open slots: meant for periodic checks, not dashboards
+    @GetMapping("/reconciliation")
+    @PreAuthorize("hasAuthority('STOCK_VALUATION')")
+    public ResponseEntity<ValuationReconciliationResponse> reconcile() {
+        return ResponseEntity.ok(stockValuationService.reconcile());
+    }
+}
@@ -2,8 +2,12 @@ package com.example.tricol.tricolspringbootrestapi.dto.request;
 
 import lombok.Data;
 
+import java.time.LocalDate;
+
 @Data
 public class CreateOrderItemRequest {
     private Long productId;
     private Double quantity;
+    // Optional, for perishable products allocated by expiry date (FEFO)
+    private LocalDate expiryDate;
 }
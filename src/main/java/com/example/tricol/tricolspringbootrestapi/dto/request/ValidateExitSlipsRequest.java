@@ -0,0 +1,20 @@
+package com.example.tricol.tricolspringbootrestapi.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ValidateExitSlipsRequest {
+
+    @NotEmpty(message = "At least one exit slip ID is required")
+    @Size(max = 1000, message = "At most 1000 exit slips can be validated at once")
+    private List<@NotNull Long> slipIds;
+}
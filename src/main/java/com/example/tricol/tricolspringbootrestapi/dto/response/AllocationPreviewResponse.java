@@ -0,0 +1,46 @@
+package com.example.tricol.tricolspringbootrestapi.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Lots a draft exit slip would consume if validated now, with their cost. Nothing is reserved or locked:
+ * the actual validation may allocate differently if the stock moves in between.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AllocationPreviewResponse {
+    private Long exitSlipId;
+    private String slipNumber;
+    // false when the stock cannot serve the slip; error then says which product is short
+    private boolean feasible;
+    private String error;
+    private Double totalQuantity;
+    private BigDecimal totalCost;
+    private List<Lot> lots;
+    private LocalDateTime computedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Lot {
+        private Long productId;
+        private String productName;
+        private Long stockSlotId;
+        private String lotNumber;
+        private LocalDateTime entryDate;
+        private LocalDate expiryDate;
+        private Double quantity;
+        private Double unitCost;
+        private BigDecimal cost;
+    }
+}
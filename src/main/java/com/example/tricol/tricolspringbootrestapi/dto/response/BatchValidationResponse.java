@@ -0,0 +1,32 @@
+package com.example.tricol.tricolspringbootrestapi.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk exit slip validation, one result per requested slip in request order.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchValidationResponse {
+    private int validated;
+    private int failed;
+    private List<Result> results;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Result {
+        private Long slipId;
+        private String slipNumber;
+        private boolean success;
+        // null when validated
+        private String error;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.tricol.tricolspringbootrestapi.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Cost of goods issued by validated exit slips over a range of validation days, by workshop or exit reason.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExitCostReportResponse {
+    // WORKSHOP or REASON
+    private String groupBy;
+    private LocalDate from;
+    private LocalDate to;
+    private Double totalQuantity;
+    private BigDecimal totalCost;
+    private Long slipCount;
+    private List<Line> lines;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        // workshop name or ExitReason
+        private String label;
+        private Double quantity;
+        private BigDecimal cost;
+        private Long slipCount;
+    }
+}
@@ -16,5 +16,6 @@ public class ExitSlipItemResponse {
     private String productReference;
     private BigDecimal requestedQuantity;
     private BigDecimal actualQuantity;
+    private BigDecimal cost;
     private String note;
 }
@@ -2,6 +2,8 @@ package com.example.tricol.tricolspringbootrestapi.dto.response;
 
 import lombok.Data;
 
+import java.time.LocalDate;
+
 @Data
 public class OrderItemResponse {
     private Long productId;
@@ -9,4 +11,5 @@ public class OrderItemResponse {
     private Double quantity;
     private Double unitPrice;
     private Double total;
+    private LocalDate expiryDate;
 }
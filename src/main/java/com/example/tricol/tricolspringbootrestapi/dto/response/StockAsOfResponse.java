@@ -0,0 +1,39 @@
+package com.example.tricol.tricolspringbootrestapi.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Stock quantity and FIFO value at a past date, rebuilt from the nearest checkpoint plus the movements after it.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAsOfResponse {
+    private Long productId;
+    private String category;
+    private LocalDateTime at;
+    // Checkpoint the replay started from, null when replayed from the first movement
+    private LocalDateTime checkpointAt;
+    private Double quantity;
+    private Double value;
+    // One line per lot for a product, one line per product for a category
+    private List<Line> lines;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        private Long productId;
+        private Long stockSlotId;
+        private Double quantity;
+        private Double unitPrice;
+        private Double value;
+    }
+}
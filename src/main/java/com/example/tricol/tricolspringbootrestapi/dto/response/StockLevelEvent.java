@@ -0,0 +1,30 @@
+package com.example.tricol.tricolspringbootrestapi.dto.response;
+
+import com.example.tricol.tricolspringbootrestapi.enums.StockEventType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stock level of one product after a committed receipt or exit slip, as pushed on /stock/events.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLevelEvent {
+    private StockEventType type;
+    private Long productId;
+    private String reference;
+    private String category;
+    private Double previousStock;
+    private Double currentStock;
+    private Double reorderPoint;
+    // ORDER_RECEIPT or EXIT_SLIP, with the id of the order or exit slip
+    private String source;
+    private Long sourceId;
+    private LocalDateTime occurredAt;
+}
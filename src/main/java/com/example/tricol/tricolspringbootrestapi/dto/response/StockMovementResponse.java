@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Data
@@ -14,6 +15,8 @@ public class StockMovementResponse {
     private String type;
     private LocalDateTime date;
     private Double quantity;
+    private Double unitCost;
+    private BigDecimal cost;
     private Long productId;
     private String productName;
     private Long orderId;
@@ -0,0 +1,21 @@
+package com.example.tricol.tricolspringbootrestapi.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of movements in cursor mode. There is no total count; pass nextCursor back
+ * to get the following page, it is null on the last one.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementSliceResponse {
+    private List<StockMovementResponse> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;
+}
@@ -0,0 +1,35 @@
+package com.example.tricol.tricolspringbootrestapi.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Warehouse FIFO valuation, as a total and optionally broken down by category or supplier.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockValuationResponse {
+    // ALL, CATEGORY or SUPPLIER
+    private String groupBy;
+    private Double totalQuantity;
+    private BigDecimal totalValue;
+    private List<Line> lines;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        // supplier id when grouped by supplier, null otherwise
+        private Long id;
+        private String label;
+        private Double quantity;
+        private BigDecimal value;
+    }
+}
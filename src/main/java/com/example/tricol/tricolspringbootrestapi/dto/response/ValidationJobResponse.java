@@ -0,0 +1,25 @@
+package com.example.tricol.tricolspringbootrestapi.dto.response;
+
+import com.example.tricol.tricolspringbootrestapi.enums.ValidationJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ValidationJobResponse {
+    private Long jobId;
+    private Long exitSlipId;
+    private ValidationJobStatus status;
+    // Reason of a FAILED job
+    private String error;
+    private int attempts;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
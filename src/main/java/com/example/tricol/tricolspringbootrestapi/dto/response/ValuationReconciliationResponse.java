@@ -0,0 +1,39 @@
+package com.example.tricol.tricolspringbootrestapi.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Running valuation compared with the sum over the open slots, product by product.
+ * Products issued at average cost are compared on quantity only: their ledger value is carried at the average,
+ * not at the price of the lots that remain.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ValuationReconciliationResponse {
+    private int productsChecked;
+    private BigDecimal tolerance;
+    private boolean consistent;
+    private List<Mismatch> mismatches;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Mismatch {
+        private Long productId;
+        // VALUE or QUANTITY: what difference is measured in
+        private String basis;
+        private double ledgerQuantity;
+        private double slotQuantity;
+        private BigDecimal ledgerValue;
+        private BigDecimal slotValue;
+        private BigDecimal difference;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.tricol.tricolspringbootrestapi.enums;
+
+public enum AllocationMethod {
+    // First in, first out: oldest lot first
+    FIFO,
+    // First expired, first out: soonest expiry date first, lots without one last
+    FEFO,
+    // Last in, first out: newest lot first
+    LIFO,
+    // Lots picked oldest first, but issued at the product's average cost
+    WEIGHTED_AVERAGE
+}
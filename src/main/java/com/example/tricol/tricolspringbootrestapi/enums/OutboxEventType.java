@@ -0,0 +1,7 @@
+package com.example.tricol.tricolspringbootrestapi.enums;
+
+public enum OutboxEventType {
+    ORDER_RECEIVED,
+    EXIT_SLIP_VALIDATED,
+    EXIT_SLIP_CANCELLED
+}
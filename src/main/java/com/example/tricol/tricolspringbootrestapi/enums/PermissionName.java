@@ -0,0 +1,69 @@
+package com.example.tricol.tricolspringbootrestapi.enums;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Every permission seeded by DataInitializer. The ordinal is the permission's bit in PermissionMask,
+ * so new permissions are appended at the end and existing ones are never reordered.
+ */
+public enum PermissionName {
+    // Suppliers
+    SUPPLIERS_READ("View suppliers", "SUPPLIERS"),
+    SUPPLIERS_WRITE("Create/Edit/Delete suppliers", "SUPPLIERS"),
+
+    // Products
+    PRODUCTS_READ("View products", "PRODUCTS"),
+    PRODUCTS_WRITE("Create/Edit/Delete products", "PRODUCTS"),
+    PRODUCTS_CONFIGURE_ALERTS("Configure stock alerts", "PRODUCTS"),
+
+    // Orders
+    ORDERS_READ("View orders", "ORDERS"),
+    ORDERS_WRITE("Create/Edit orders", "ORDERS"),
+    ORDERS_VALIDATE("Validate orders", "ORDERS"),
+    ORDERS_CANCEL("Cancel orders", "ORDERS"),
+    ORDERS_RECEIVE("Receive orders", "ORDERS"),
+
+    // Stock
+    STOCK_READ("View stock and lots", "STOCK"),
+    STOCK_VALUATION("View FIFO valuation", "STOCK"),
+    STOCK_HISTORY("View movement history", "STOCK"),
+
+    // Exit Slips
+    EXIT_SLIPS_READ("View exit slips", "EXIT_SLIPS"),
+    EXIT_SLIPS_CREATE("Create exit slips", "EXIT_SLIPS"),
+    EXIT_SLIPS_VALIDATE("Validate exit slips", "EXIT_SLIPS"),
+    EXIT_SLIPS_CANCEL("Cancel exit slips", "EXIT_SLIPS"),
+
+    // Administration
+    ADMIN_USERS("Manage users", "ADMIN");
+
+    private static final Map<String, PermissionName> BY_NAME = new HashMap<>();
+
+    static {
+        for (PermissionName permission : values()) {
+            BY_NAME.put(permission.name(), permission);
+        }
+    }
+
+    private final String description;
+    private final String category;
+
+    PermissionName(String description, String category) {
+        this.description = description;
+        this.category = category;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    // Unlike valueOf, returns null for names outside the registry instead of throwing
+    public static PermissionName lookup(String name) {
+        return BY_NAME.get(name);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.tricol.tricolspringbootrestapi.enums;
+
+public enum StockEventType {
+    STOCK_CHANGED,
+    // current stock went below the reorder point
+    LOW_STOCK,
+    // current stock went back to or above the reorder point
+    RESTOCKED
+}
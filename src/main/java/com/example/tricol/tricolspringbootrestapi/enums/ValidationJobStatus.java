@@ -0,0 +1,8 @@
+package com.example.tricol.tricolspringbootrestapi.enums;
+
+public enum ValidationJobStatus {
+    PENDING,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+}
@@ -0,0 +1,7 @@
+package com.example.tricol.tricolspringbootrestapi.exception;
+
+public class ConcurrentStockUpdateException extends RuntimeException {
+    public ConcurrentStockUpdateException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.tricol.tricolspringbootrestapi.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Next free value of a document number counter, e.g. "BS-20251104" or "LOT-2025".
+ * Nodes reserve values from it in blocks, see DocumentNumberServiceImpl.
+ */
+@Entity
+@Table(name = "document_sequences")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentSequence {
+
+    @Id
+    @Column(name = "sequence_key", length = 50)
+    private String sequenceKey;
+
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+}
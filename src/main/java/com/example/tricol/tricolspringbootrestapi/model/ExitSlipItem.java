@@ -31,6 +31,10 @@ public class ExitSlipItem {
     
     @Column
     private BigDecimal actualQuantity;
+
+    // Cost of goods issued, set on validation
+    @Column(precision = 19, scale = 4)
+    private BigDecimal cost;
     
     @Column(length = 500)
     private String note;
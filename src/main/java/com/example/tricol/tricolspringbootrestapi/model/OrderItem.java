@@ -7,6 +7,8 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.springframework.data.repository.cdi.Eager;
 
+import java.time.LocalDate;
+
 @Entity
 @Table(name = "order_item")
 @Getter
@@ -24,6 +26,9 @@ public class OrderItem {
 
     private Double total;
 
+    // Copied to the stock slot on receipt
+    private LocalDate expiryDate;
+
     @ManyToOne
     @JoinColumn(name = "order_id")
     private Order order;
@@ -6,6 +6,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
@@ -15,8 +16,11 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 public class StockMovement {
+    // Pooled table ids (MySQL has no sequences) so movement inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "stock_movement_ids")
+    @TableGenerator(name = "stock_movement_ids", table = "id_generators", pkColumnName = "entity_name",
+            valueColumnName = "next_id", pkColumnValue = "stock_movements", allocationSize = 50)
     private Long id;
 
     @Enumerated(EnumType.STRING)
@@ -30,6 +34,12 @@ public class StockMovement {
 
     private Double quantity;
 
+    private Double unitCost;
+
+    // Same sign as quantity
+    @Column(precision = 19, scale = 4)
+    private BigDecimal cost;
+
     @ManyToOne
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -14,8 +15,11 @@ import java.util.List;
 @NoArgsConstructor
 @Table(name = "stock_slots")
 public class StockSlot {
+    // Pooled table ids (MySQL has no sequences) so slot inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "stock_slot_ids")
+    @TableGenerator(name = "stock_slot_ids", table = "id_generators", pkColumnName = "entity_name",
+            valueColumnName = "next_id", pkColumnValue = "stock_slots", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true, length = 50)
@@ -28,12 +32,14 @@ public class StockSlot {
     private Double quantity;
     private Double availableQuantity;
     private Double unitPrice;
+    // Null when the lot does not expire
+    private LocalDate expiryDate;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "order_id")
     private Order order;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id")
     private Product product;
 
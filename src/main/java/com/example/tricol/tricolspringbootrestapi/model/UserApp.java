@@ -46,6 +46,10 @@ public class UserApp {
     @Column(nullable = false)
     private Boolean active = true;
     
+    // Incremented whenever roles or permission overrides change (see PermissionEpochTable)
+    @Column(name = "permission_epoch", nullable = false)
+    private Long permissionEpoch = 0L;
+    
     @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(name = "user_roles",
                joinColumns = @JoinColumn(name = "user_id"),
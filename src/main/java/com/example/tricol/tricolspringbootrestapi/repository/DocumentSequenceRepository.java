@@ -0,0 +1,34 @@
+package com.example.tricol.tricolspringbootrestapi.repository;
+
+import com.example.tricol.tricolspringbootrestapi.model.DocumentSequence;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface DocumentSequenceRepository extends JpaRepository<DocumentSequence, String> {
+
+    // No-op when another node created the counter first
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO document_sequences (sequence_key, next_value) VALUES (:key, :start)", nativeQuery = true)
+    int insertIfAbsent(@Param("key") String sequenceKey, @Param("start") long start);
+
+    // Highest numeric suffix among numbers already issued under a prefix, 0 when there are none
+    @Query(value = "SELECT COALESCE(MAX(CAST(SUBSTRING(slip_number, :suffixStart) AS UNSIGNED)), 0) "
+            + "FROM exit_slips WHERE slip_number LIKE :pattern", nativeQuery = true)
+    long maxSlipNumberSuffix(@Param("pattern") String pattern, @Param("suffixStart") int suffixStart);
+
+    @Query(value = "SELECT COALESCE(MAX(CAST(SUBSTRING(lot_number, :suffixStart) AS UNSIGNED)), 0) "
+            + "FROM stock_slots WHERE lot_number LIKE :pattern", nativeQuery = true)
+    long maxLotNumberSuffix(@Param("pattern") String pattern, @Param("suffixStart") int suffixStart);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM DocumentSequence s WHERE s.sequenceKey = :key")
+    Optional<DocumentSequence> findByKeyForUpdate(@Param("key") String sequenceKey);
+}
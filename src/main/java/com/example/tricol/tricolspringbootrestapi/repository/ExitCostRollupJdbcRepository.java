@@ -0,0 +1,81 @@
+package com.example.tricol.tricolspringbootrestapi.repository;
+
+import com.example.tricol.tricolspringbootrestapi.model.ExitSlip;
+import com.example.tricol.tricolspringbootrestapi.model.ExitSlipItem;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+@Repository
+@RequiredArgsConstructor
+public class ExitCostRollupJdbcRepository {
+
+    private static final String ADD_SQL =
+            "INSERT INTO exit_cost_daily (day, destination_workshop, reason, quantity, cost, slip_count) "
+                    + "VALUES (?, ?, ?, ?, ?, ?) "
+                    + "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), cost = cost + VALUES(cost), "
+                    + "slip_count = slip_count + VALUES(slip_count)";
+
+    private static final Comparator<RollupKey> KEY_ORDER = Comparator.comparing(RollupKey::day)
+            .thenComparing(RollupKey::workshop)
+            .thenComparing(RollupKey::reason);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds validated slips to their day/workshop/reason rows, in the caller's transaction. Rows are written
+     * in key order so two batches never lock the same rows in opposite orders.
+     */
+    public void addValidated(Collection<ExitSlip> exitSlips) {
+        Map<RollupKey, Totals> totals = new TreeMap<>(KEY_ORDER);
+        for (ExitSlip exitSlip : exitSlips) {
+            RollupKey key = new RollupKey(exitSlip.getValidatedAt().toLocalDate(),
+                    exitSlip.getDestinationWorkshop(), exitSlip.getReason().name());
+            Totals slipTotals = totals.computeIfAbsent(key, k -> new Totals());
+            slipTotals.slips++;
+            for (ExitSlipItem item : exitSlip.getItems()) {
+                slipTotals.quantity += item.getActualQuantity() != null ? item.getActualQuantity().doubleValue() : 0.0;
+                slipTotals.cost = slipTotals.cost.add(item.getCost() != null ? item.getCost() : BigDecimal.ZERO);
+            }
+        }
+        if (totals.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(ADD_SQL, totals.entrySet().stream().map(row -> new Object[]{
+                row.getKey().day(), row.getKey().workshop(), row.getKey().reason(),
+                row.getValue().quantity, row.getValue().cost, row.getValue().slips}).toList());
+    }
+
+    public List<CostRow> byWorkshop(LocalDate from, LocalDate to) {
+        return grouped("destination_workshop", from, to);
+    }
+
+    public List<CostRow> byReason(LocalDate from, LocalDate to) {
+        return grouped("reason", from, to);
+    }
+
+    // groupColumn is one of the fixed column names above, never user input
+    private List<CostRow> grouped(String groupColumn, LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(
+                "SELECT " + groupColumn + ", SUM(quantity), SUM(cost), SUM(slip_count) FROM exit_cost_daily "
+                        + "WHERE day BETWEEN ? AND ? GROUP BY " + groupColumn + " ORDER BY SUM(cost) DESC",
+                (rs, rowNum) -> new CostRow(rs.getString(1), rs.getDouble(2), rs.getBigDecimal(3), rs.getLong(4)),
+                from, to);
+    }
+
+    public record CostRow(String key, double quantity, BigDecimal cost, long slipCount) {
+    }
+
+    private record RollupKey(LocalDate day, String workshop, String reason) {
+    }
+
+    private static final class Totals {
+        private double quantity;
+        private BigDecimal cost = BigDecimal.ZERO;
+        private int slips;
+    }
+}
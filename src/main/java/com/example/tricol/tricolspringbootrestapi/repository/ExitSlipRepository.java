@@ -2,9 +2,15 @@ package com.example.tricol.tricolspringbootrestapi.repository;
 
 import com.example.tricol.tricolspringbootrestapi.enums.ExitSlipStatus;
 import com.example.tricol.tricolspringbootrestapi.model.ExitSlip;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,8 +18,27 @@ import java.util.Optional;
 public interface ExitSlipRepository extends JpaRepository<ExitSlip, Long> {
     
     Optional<ExitSlip> findBySlipNumber(String slipNumber);
+
+    // Serializes validation/cancellation of the same slip across nodes
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM ExitSlip e WHERE e.id = :id")
+    Optional<ExitSlip> findByIdForUpdate(@Param("id") Long id);
+
+    // Slip rows only, in id order, so batches and single validations lock in the same order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM ExitSlip e WHERE e.id IN :ids ORDER BY e.id")
+    List<ExitSlip> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    // Loads the items of slips already in the persistence context, without locking the products
+    @Query("SELECT DISTINCT e FROM ExitSlip e JOIN FETCH e.items i JOIN FETCH i.product WHERE e.id IN :ids")
+    List<ExitSlip> fetchItems(@Param("ids") Collection<Long> ids);
     
     List<ExitSlip> findByStatus(ExitSlipStatus status);
+
+    @Query("SELECT DISTINCT e FROM ExitSlip e JOIN FETCH e.items i JOIN FETCH i.product "
+            + "WHERE e.status = :status AND e.createdAt >= :since")
+    List<ExitSlip> findWithItemsByStatusCreatedSince(@Param("status") ExitSlipStatus status,
+                                                     @Param("since") LocalDateTime since);
     
     List<ExitSlip> findByDestinationWorkshop(String destinationWorkshop);
     
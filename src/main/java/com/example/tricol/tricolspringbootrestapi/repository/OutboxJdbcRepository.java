@@ -0,0 +1,56 @@
+package com.example.tricol.tricolspringbootrestapi.repository;
+
+import com.example.tricol.tricolspringbootrestapi.enums.OutboxEventType;
+import com.example.tricol.tricolspringbootrestapi.service.outbox.OutboxEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class OutboxJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insert(OutboxEventType eventType, String aggregateType, long aggregateId, String payload) {
+        jdbcTemplate.update("INSERT INTO outbox_events (event_type, aggregate_type, aggregate_id, payload) VALUES (?, ?, ?, ?)",
+                eventType.name(), aggregateType, aggregateId, payload);
+    }
+
+    // Held until the caller's transaction ends; false when another node is dispatching
+    public boolean tryLockDispatcher() {
+        return !jdbcTemplate.queryForList("SELECT id FROM outbox_dispatch_lock WHERE id = 1 FOR UPDATE SKIP LOCKED",
+                Integer.class).isEmpty();
+    }
+
+    public List<OutboxEvent> findPending(int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, event_type, aggregate_type, aggregate_id, created_at, payload FROM outbox_events "
+                        + "WHERE dispatched_at IS NULL ORDER BY id LIMIT ?",
+                (rs, rowNum) -> new OutboxEvent(rs.getLong(1), OutboxEventType.valueOf(rs.getString(2)),
+                        rs.getString(3), rs.getLong(4), rs.getObject(5, LocalDateTime.class), rs.getString(6)),
+                limit);
+    }
+
+    public void markDispatched(List<Long> ids) {
+        jdbcTemplate.update("UPDATE outbox_events SET dispatched_at = NOW(6) WHERE id IN (" + placeholders(ids) + ")",
+                ids.toArray());
+    }
+
+    public void recordFailedAttempt(List<Long> ids) {
+        jdbcTemplate.update("UPDATE outbox_events SET attempts = attempts + 1 WHERE id IN (" + placeholders(ids) + ")",
+                ids.toArray());
+    }
+
+    public int purgeDispatchedBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM outbox_events WHERE dispatched_at < ?", cutoff);
+    }
+
+    private static String placeholders(List<Long> ids) {
+        return String.join(", ", Collections.nCopies(ids.size(), "?"));
+    }
+}
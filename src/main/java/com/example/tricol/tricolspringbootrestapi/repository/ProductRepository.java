@@ -1,12 +1,42 @@
 package com.example.tricol.tricolspringbootrestapi.repository;
 
 import com.example.tricol.tricolspringbootrestapi.model.Product;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     Optional<Product> findByReference(String reference);
+
+    // Primary key lookups lock rows in ascending id order, so two consumers of overlapping
+    // products always queue on the same first row instead of deadlocking
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids ORDER BY p.id")
+    List<Product> lockAllByIdInOrder(@Param("ids") Collection<Long> ids);
+
+    // low_stock is a stored generated column (current_stock < reorder_point) indexed with id, see changelog v015
+    @Query(value = "SELECT * FROM products WHERE low_stock = 1 ORDER BY id",
+           countQuery = "SELECT COUNT(*) FROM products WHERE low_stock = 1",
+           nativeQuery = true)
+    Page<Product> findLowStock(Pageable pageable);
+
+    @Query(value = "SELECT * FROM products WHERE low_stock = 1 AND id > :afterId ORDER BY id LIMIT :size",
+           nativeQuery = true)
+    List<Product> findLowStockAfter(@Param("afterId") long afterId, @Param("size") int size);
+
+    @Query(value = "SELECT id FROM products WHERE low_stock = 1", nativeQuery = true)
+    List<Long> findLowStockIds();
+
+    @Query(value = "SELECT id FROM products WHERE low_stock = 1 AND id IN (:ids)", nativeQuery = true)
+    List<Long> findLowStockIdsAmong(@Param("ids") Collection<Long> ids);
 }
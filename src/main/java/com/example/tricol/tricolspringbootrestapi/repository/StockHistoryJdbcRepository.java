@@ -0,0 +1,109 @@
+package com.example.tricol.tricolspringbootrestapi.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Stock checkpoints (quantity per lot and product at a point in time) and the movement replay on top of them.
+ * Reads are plain consistent reads: building a checkpoint takes no lock that a receipt or exit slip could wait on.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockHistoryJdbcRepository {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<LocalDateTime> findLatestCompletedCheckpoint(LocalDateTime atOrBefore) {
+        return jdbcTemplate.queryForList(
+                "SELECT MAX(checkpoint_at) FROM stock_checkpoint_runs WHERE status = ? AND checkpoint_at <= ?",
+                LocalDateTime.class, COMPLETED, atOrBefore).stream().filter(at -> at != null).findFirst();
+    }
+
+    public void insertRun(LocalDateTime checkpointAt) {
+        jdbcTemplate.update("INSERT INTO stock_checkpoint_runs (checkpoint_at, status) VALUES (?, ?)", checkpointAt, RUNNING);
+    }
+
+    public void completeRun(LocalDateTime checkpointAt) {
+        jdbcTemplate.update("UPDATE stock_checkpoint_runs SET status = ?, completed_at = NOW(6) WHERE checkpoint_at = ?",
+                COMPLETED, checkpointAt);
+    }
+
+    public void deleteRun(LocalDateTime checkpointAt) {
+        jdbcTemplate.update("DELETE FROM stock_checkpoints WHERE checkpoint_at = ?", checkpointAt);
+        jdbcTemplate.update("DELETE FROM stock_checkpoint_runs WHERE checkpoint_at = ?", checkpointAt);
+    }
+
+    public List<Long> findAllProductIds() {
+        return jdbcTemplate.queryForList("SELECT id FROM products ORDER BY id", Long.class);
+    }
+
+    public List<Long> findProductIdsByCategory(String category) {
+        return jdbcTemplate.queryForList("SELECT id FROM products WHERE category = ? ORDER BY id", Long.class, category);
+    }
+
+    public List<LotQuantity> findCheckpointLots(LocalDateTime checkpointAt, Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        List<Object> args = new ArrayList<>(productIds);
+        args.add(checkpointAt);
+        return jdbcTemplate.query(
+                "SELECT product_id, stock_slot_id, quantity, unit_price FROM stock_checkpoints "
+                        + "WHERE product_id IN (" + placeholders(productIds) + ") AND checkpoint_at = ?",
+                (rs, rowNum) -> new LotQuantity(rs.getLong(1), rs.getLong(2), rs.getDouble(3), rs.getDouble(4)),
+                args.toArray());
+    }
+
+    /**
+     * Net movement per lot in (from, to], from being null to replay from the first movement.
+     * Served by idx_stock_movements_product_date, so the cost follows the movements in the interval.
+     */
+    public List<LotQuantity> sumMovementsByLot(Collection<Long> productIds, LocalDateTime from, LocalDateTime to) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        List<Object> args = new ArrayList<>(productIds);
+        if (from != null) {
+            args.add(from);
+        }
+        args.add(to);
+        return jdbcTemplate.query(
+                "SELECT m.product_id, m.stock_slot_id, SUM(m.quantity), MAX(COALESCE(s.unit_price, 0)) "
+                        + "FROM stock_movements m JOIN stock_slots s ON s.id = m.stock_slot_id "
+                        + "WHERE m.product_id IN (" + placeholders(productIds) + ")"
+                        + (from != null ? " AND m.date > ?" : "") + " AND m.date <= ? "
+                        + "GROUP BY m.product_id, m.stock_slot_id",
+                (rs, rowNum) -> new LotQuantity(rs.getLong(1), rs.getLong(2), rs.getDouble(3), rs.getDouble(4)),
+                args.toArray());
+    }
+
+    public void insertCheckpointLots(LocalDateTime checkpointAt, List<LotQuantity> lots, int batchSize) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO stock_checkpoints (product_id, checkpoint_at, stock_slot_id, quantity, unit_price) VALUES (?, ?, ?, ?, ?)",
+                lots, batchSize, (ps, lot) -> {
+                    ps.setLong(1, lot.productId());
+                    ps.setObject(2, checkpointAt);
+                    ps.setLong(3, lot.stockSlotId());
+                    ps.setDouble(4, lot.quantity());
+                    ps.setDouble(5, lot.unitPrice());
+                });
+    }
+
+    private static String placeholders(Collection<?> values) {
+        return String.join(", ", Collections.nCopies(values.size(), "?"));
+    }
+
+    public record LotQuantity(long productId, long stockSlotId, double quantity, double unitPrice) {
+    }
+}
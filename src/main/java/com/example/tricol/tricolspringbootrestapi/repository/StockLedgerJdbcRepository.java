@@ -0,0 +1,134 @@
+package com.example.tricol.tricolspringbootrestapi.repository;
+
+import com.example.tricol.tricolspringbootrestapi.exception.ConcurrentStockUpdateException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set-based stock quantity and valuation updates for consumption and receipts. Each method sends its rows
+ * as JDBC batches (rewritten into multi-row statements by the MySQL driver), so the number of round trips
+ * depends on the batch size and not on the number of slots touched.
+ */
+@Repository
+public class StockLedgerJdbcRepository {
+
+    private static final String DEBIT_SLOT_SQL =
+            "UPDATE stock_slots SET available_quantity = available_quantity - ? WHERE id = ? AND available_quantity >= ?";
+
+    private static final String ADJUST_PRODUCT_STOCK_SQL =
+            "UPDATE products SET current_stock = current_stock + ? WHERE id = ?";
+
+    // Values are rounded to the DECIMAL(19,4) scale on each write, so the running sum never drifts
+    // further than the rounding of the individual deltas
+    private static final String CREDIT_VALUATION_SQL =
+            "INSERT INTO stock_valuations (product_id, supplier_id, quantity, stock_value) VALUES (?, ?, ?, ROUND(? * ?, 4)) "
+                    + "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), stock_value = stock_value + VALUES(stock_value)";
+
+    // Priced at the debit's unit cost (average cost products) or else the debited slot's own unit price,
+    // and charged to the slot's supplier
+    private static final String DEBIT_VALUATION_SQL =
+            "INSERT INTO stock_valuations (product_id, supplier_id, quantity, stock_value) "
+                    + "SELECT s.product_id, COALESCE(o.supplier_id, 0), -?, -ROUND(? * ?, 4) "
+                    + "FROM stock_slots s LEFT JOIN orders o ON o.id = s.order_id WHERE s.id = ? "
+                    + "ON DUPLICATE KEY UPDATE stock_valuations.quantity = stock_valuations.quantity + VALUES(quantity), "
+                    + "stock_valuations.stock_value = stock_valuations.stock_value + VALUES(stock_value)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public StockLedgerJdbcRepository(JdbcTemplate jdbcTemplate,
+                                     @Value("${app.stock.jdbc-batch-size:100}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    // The guard never matches while the slots are locked by the caller; it stops an unlocked
+    // caller from driving a slot negative
+    public void debitSlots(List<SlotDebit> debits) {
+        int[][] counts = jdbcTemplate.batchUpdate(DEBIT_SLOT_SQL, debits, batchSize, (ps, debit) -> {
+            ps.setDouble(1, debit.quantity());
+            ps.setLong(2, debit.slotId());
+            ps.setDouble(3, debit.quantity());
+        });
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count == 0) {
+                    throw new ConcurrentStockUpdateException("Stock slot was consumed concurrently, please retry");
+                }
+            }
+        }
+    }
+
+    // Deltas are applied relative to the stored value, one statement per product
+    public void adjustProductStock(Map<Long, Double> deltasByProductId) {
+        jdbcTemplate.batchUpdate(ADJUST_PRODUCT_STOCK_SQL, deltasByProductId.entrySet(), batchSize, (ps, delta) -> {
+            ps.setDouble(1, delta.getValue());
+            ps.setLong(2, delta.getKey());
+        });
+    }
+
+    public void creditValuations(List<ValuationCredit> credits) {
+        jdbcTemplate.batchUpdate(CREDIT_VALUATION_SQL, credits, batchSize, (ps, credit) -> {
+            ps.setLong(1, credit.productId());
+            ps.setLong(2, credit.supplierId() != null ? credit.supplierId() : 0L);
+            ps.setDouble(3, credit.quantity());
+            ps.setDouble(4, credit.quantity());
+            ps.setDouble(5, credit.unitPrice());
+        });
+    }
+
+    public void debitValuations(List<SlotDebit> debits) {
+        jdbcTemplate.batchUpdate(DEBIT_VALUATION_SQL, debits, batchSize, (ps, debit) -> {
+            ps.setDouble(1, debit.quantity());
+            ps.setDouble(2, debit.quantity());
+            ps.setDouble(3, debit.unitCost());
+            ps.setLong(4, debit.slotId());
+        });
+    }
+
+    // Read inside the writing transaction, the rows are still locked so the levels are exact
+    public List<StockLevel> findStockLevels(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(productIds.size(), "?"));
+        return jdbcTemplate.query(
+                "SELECT id, reference, category, current_stock, reorder_point FROM products WHERE id IN (" + placeholders + ")",
+                (rs, rowNum) -> new StockLevel(rs.getLong(1), rs.getString(2), rs.getString(3),
+                        rs.getDouble(4), rs.getDouble(5)),
+                productIds.toArray());
+    }
+
+    // Running average cost per product, from the valuation ledger (no lot walk)
+    public Map<Long, Double> findAverageCosts(Collection<Long> productIds) {
+        Map<Long, Double> averages = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return averages;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(productIds.size(), "?"));
+        jdbcTemplate.query(
+                "SELECT product_id, SUM(stock_value) / SUM(quantity) FROM stock_valuations WHERE product_id IN ("
+                        + placeholders + ") GROUP BY product_id HAVING SUM(quantity) > 0",
+                (RowCallbackHandler) rs -> averages.put(rs.getLong(1), rs.getDouble(2)),
+                productIds.toArray());
+        return averages;
+    }
+
+    // unitCost is the lot's price, or the product average for weighted-average categories
+    public record SlotDebit(long slotId, long productId, double quantity, double unitCost) {
+    }
+
+    public record ValuationCredit(long productId, Long supplierId, double quantity, double unitPrice) {
+    }
+
+    public record StockLevel(long productId, String reference, String category, double currentStock, double reorderPoint) {
+    }
+}
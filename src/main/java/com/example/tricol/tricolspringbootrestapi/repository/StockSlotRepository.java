@@ -2,19 +2,46 @@ package com.example.tricol.tricolspringbootrestapi.repository;
 
 import com.example.tricol.tricolspringbootrestapi.model.Product;
 import com.example.tricol.tricolspringbootrestapi.model.StockSlot;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface StockSlotRepository extends JpaRepository<StockSlot,Long> {
     
-    List<StockSlot> findByProductAndAvailableQuantityGreaterThanOrderByEntryDateAsc(
-            Product product, Double quantity);
-    
     List<StockSlot> findByProductAndAvailableQuantityGreaterThan(
             Product product, Double quantity);
     
     List<StockSlot> findByProduct(Product product);
+
+    // Candidate slots for every product of a slip in one round trip, oldest first within each product.
+    // Loaded read-only: consumption is written back through StockLedgerJdbcRepository, not dirty checking.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("SELECT s FROM StockSlot s " +
+           "JOIN FETCH s.product " +
+           "LEFT JOIN FETCH s.order o " +
+           "LEFT JOIN FETCH o.supplier " +
+           "WHERE s.product.id IN :productIds AND s.availableQuantity > 0 " +
+           "ORDER BY s.product.id, s.entryDate, s.id")
+    List<StockSlot> findAvailableByProductIds(@Param("productIds") Collection<Long> productIds);
+
+    // Same candidates as a locking read (SELECT ... FOR UPDATE): it sees the latest committed quantities
+    // rather than the transaction snapshot. Callers lock the owning products first (ProductRepository.lockAllByIdInOrder).
+    // The order only keeps lock acquisition stable; consumption order is decided by the allocation strategy.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("SELECT s FROM StockSlot s " +
+           "JOIN FETCH s.product " +
+           "WHERE s.product.id IN :productIds AND s.availableQuantity > 0 " +
+           "ORDER BY s.product.id, s.entryDate, s.id")
+    List<StockSlot> lockAvailableByProductIds(@Param("productIds") Collection<Long> productIds);
 }
@@ -0,0 +1,75 @@
+package com.example.tricol.tricolspringbootrestapi.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads of the running valuation in stock_valuations (one row per product and supplier, maintained by
+ * {@link StockLedgerJdbcRepository}). Their cost depends on the number of products, never on the number of slots,
+ * except for the slot-level sums used to reconcile.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockValuationJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BigDecimal productValue(long productId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(stock_value), 0) FROM stock_valuations WHERE product_id = ?",
+                BigDecimal.class, productId);
+    }
+
+    public ValuationRow total() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(quantity), 0), COALESCE(SUM(stock_value), 0) FROM stock_valuations",
+                (rs, rowNum) -> new ValuationRow(null, "ALL", rs.getDouble(1), rs.getBigDecimal(2)));
+    }
+
+    public List<ValuationRow> byCategory() {
+        return jdbcTemplate.query(
+                "SELECT p.category, SUM(v.quantity), SUM(v.stock_value) FROM stock_valuations v "
+                        + "JOIN products p ON p.id = v.product_id GROUP BY p.category ORDER BY p.category",
+                (rs, rowNum) -> new ValuationRow(null, rs.getString(1), rs.getDouble(2), rs.getBigDecimal(3)));
+    }
+
+    public List<ValuationRow> bySupplier() {
+        return jdbcTemplate.query(
+                "SELECT v.supplier_id, MAX(s.society), SUM(v.quantity), SUM(v.stock_value) FROM stock_valuations v "
+                        + "LEFT JOIN supplier s ON s.id = v.supplier_id GROUP BY v.supplier_id ORDER BY v.supplier_id",
+                (rs, rowNum) -> new ValuationRow(rs.getLong(1), rs.getString(2), rs.getDouble(3), rs.getBigDecimal(4)));
+    }
+
+    public Map<Long, ProductTotals> ledgerTotalsByProduct() {
+        Map<Long, ProductTotals> totals = new HashMap<>();
+        jdbcTemplate.query("SELECT v.product_id, MAX(p.category), SUM(v.quantity), SUM(v.stock_value) FROM stock_valuations v "
+                        + "JOIN products p ON p.id = v.product_id GROUP BY v.product_id",
+                (RowCallbackHandler) rs -> totals.put(rs.getLong(1),
+                        new ProductTotals(rs.getString(2), rs.getDouble(3), rs.getBigDecimal(4))));
+        return totals;
+    }
+
+    // Full scan of the open slots: only for the reconciliation check
+    public Map<Long, ProductTotals> slotTotalsByProduct() {
+        Map<Long, ProductTotals> totals = new HashMap<>();
+        jdbcTemplate.query("SELECT s.product_id, MAX(p.category), SUM(s.available_quantity), "
+                        + "SUM(s.available_quantity * COALESCE(s.unit_price, 0)) FROM stock_slots s "
+                        + "JOIN products p ON p.id = s.product_id WHERE s.available_quantity > 0 GROUP BY s.product_id",
+                (RowCallbackHandler) rs -> totals.put(rs.getLong(1),
+                        new ProductTotals(rs.getString(2), rs.getDouble(3), rs.getBigDecimal(4))));
+        return totals;
+    }
+
+    public record ValuationRow(Long id, String label, double quantity, BigDecimal value) {
+    }
+
+    public record ProductTotals(String category, double quantity, BigDecimal value) {
+    }
+}
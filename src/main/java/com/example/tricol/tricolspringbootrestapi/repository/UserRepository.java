@@ -4,6 +4,7 @@ import com.example.tricol.tricolspringbootrestapi.model.RoleApp;
 import com.example.tricol.tricolspringbootrestapi.model.UserApp;
 import com.example.tricol.tricolspringbootrestapi.model.UserPermission;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -32,4 +33,9 @@ public interface UserRepository extends JpaRepository<UserApp, Long> {
            "LEFT JOIN FETCH r.defaultPermissions " +
            "WHERE r IN (SELECT ur FROM UserApp u JOIN u.roles ur WHERE u.email = :email)")
     List<RoleApp> findRolesWithPermissionsByUserEmail(@Param("email") String email);
-}
\ No newline at end of file
+    
+    // Atomic so two concurrent admin changes always produce two distinct epochs
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE UserApp u SET u.permissionEpoch = u.permissionEpoch + 1 WHERE u.id = :id")
+    int incrementPermissionEpoch(@Param("id") Long id);
+}
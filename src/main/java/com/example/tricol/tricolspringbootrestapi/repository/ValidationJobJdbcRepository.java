@@ -0,0 +1,138 @@
+package com.example.tricol.tricolspringbootrestapi.repository;
+
+import com.example.tricol.tricolspringbootrestapi.dto.response.ValidationJobResponse;
+import com.example.tricol.tricolspringbootrestapi.enums.ValidationJobStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class ValidationJobJdbcRepository {
+
+    private static final String SELECT_JOB = "SELECT id, exit_slip_id, status, error, attempts, created_at, "
+            + "started_at, finished_at FROM exit_slip_validation_jobs ";
+
+    private static final RowMapper<ValidationJobResponse> JOB_MAPPER = (rs, rowNum) -> ValidationJobResponse.builder()
+            .jobId(rs.getLong(1))
+            .exitSlipId(rs.getLong(2))
+            .status(ValidationJobStatus.valueOf(rs.getString(3)))
+            .error(rs.getString(4))
+            .attempts(rs.getInt(5))
+            .createdAt(rs.getObject(6, LocalDateTime.class))
+            .startedAt(rs.getObject(7, LocalDateTime.class))
+            .finishedAt(rs.getObject(8, LocalDateTime.class))
+            .build();
+
+    /**
+     * Oldest pending jobs that no earlier unfinished job shares a product with, locked for the claim.
+     * A job stays ahead of later jobs on its products until it finishes, so per-product order holds across nodes.
+     */
+    private static final String CLAIMABLE_SQL = "SELECT j.id, j.exit_slip_id, j.attempts FROM exit_slip_validation_jobs j "
+            + "WHERE j.status = 'PENDING' AND NOT EXISTS ("
+            + "SELECT 1 FROM exit_slip_validation_job_products p "
+            + "JOIN exit_slip_validation_job_products q ON q.product_id = p.product_id AND q.job_id < p.job_id "
+            + "JOIN exit_slip_validation_jobs earlier ON earlier.id = q.job_id "
+            + "WHERE p.job_id = j.id AND earlier.status IN ('PENDING', 'RUNNING')) "
+            + "ORDER BY j.id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public long insert(Long exitSlipId, Collection<Long> productIds) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO exit_slip_validation_jobs (exit_slip_id, status) VALUES (?, 'PENDING')",
+                    Statement.RETURN_GENERATED_KEYS);
+            statement.setLong(1, exitSlipId);
+            return statement;
+        }, keyHolder);
+        long jobId = keyHolder.getKey().longValue();
+        List<Object[]> rows = productIds.stream().map(productId -> new Object[]{jobId, productId}).toList();
+        jdbcTemplate.batchUpdate("INSERT INTO exit_slip_validation_job_products (job_id, product_id) VALUES (?, ?)", rows);
+        return jobId;
+    }
+
+    public Optional<ValidationJobResponse> findById(long jobId) {
+        return jdbcTemplate.query(SELECT_JOB + "WHERE id = ?", JOB_MAPPER, jobId).stream().findFirst();
+    }
+
+    public Optional<ValidationJobResponse> findUnfinishedBySlip(Long exitSlipId) {
+        return jdbcTemplate.query(SELECT_JOB + "WHERE exit_slip_id = ? AND status IN ('PENDING', 'RUNNING') "
+                + "ORDER BY id LIMIT 1", JOB_MAPPER, exitSlipId).stream().findFirst();
+    }
+
+    public int countPending() {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM exit_slip_validation_jobs WHERE status = 'PENDING'", Integer.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Claims up to limit jobs; must run in a transaction. The returned attempt number identifies this claim:
+     * completing a job checks it, so a claim lost to lease expiry cannot overwrite the new one.
+     */
+    public List<Claim> claim(int limit, Duration lease) {
+        List<Claim> claims = jdbcTemplate.query(CLAIMABLE_SQL,
+                (rs, rowNum) -> new Claim(rs.getLong(1), rs.getLong(2), rs.getInt(3) + 1), limit);
+        LocalDateTime leaseUntil = LocalDateTime.now().plus(lease);
+        jdbcTemplate.batchUpdate("UPDATE exit_slip_validation_jobs SET status = 'RUNNING', attempts = ?, "
+                        + "started_at = NOW(6), lease_until = ? WHERE id = ?",
+                claims.stream().map(claim -> new Object[]{claim.attempt(), leaseUntil, claim.jobId()}).toList());
+        return claims;
+    }
+
+    public boolean finish(Claim claim, ValidationJobStatus status, String error) {
+        return jdbcTemplate.update("UPDATE exit_slip_validation_jobs SET status = ?, error = ?, finished_at = NOW(6), "
+                        + "lease_until = NULL WHERE id = ? AND status = 'RUNNING' AND attempts = ?",
+                status.name(), error, claim.jobId(), claim.attempt()) == 1;
+    }
+
+    // Back in the queue, still ahead of the later jobs on its products
+    public void requeue(Claim claim) {
+        jdbcTemplate.update("UPDATE exit_slip_validation_jobs SET status = 'PENDING', lease_until = NULL "
+                + "WHERE id = ? AND status = 'RUNNING' AND attempts = ?", claim.jobId(), claim.attempt());
+    }
+
+    // Pushes back the lease of claims still being worked on; a claim already lost is left alone
+    public void renewLeases(Collection<Claim> claims, Duration lease) {
+        LocalDateTime leaseUntil = LocalDateTime.now().plus(lease);
+        jdbcTemplate.batchUpdate("UPDATE exit_slip_validation_jobs SET lease_until = ? "
+                        + "WHERE id = ? AND status = 'RUNNING' AND attempts = ?",
+                claims.stream().map(claim -> new Object[]{leaseUntil, claim.jobId(), claim.attempt()}).toList());
+    }
+
+    // Jobs out of attempts end as FAILED: a job whose runs keep dying (or outliving the lease) is not retried forever
+    public int failExpiredLeases(int maxAttempts, String error) {
+        return jdbcTemplate.update("UPDATE exit_slip_validation_jobs SET status = 'FAILED', error = ?, "
+                + "finished_at = NOW(6), lease_until = NULL "
+                + "WHERE status = 'RUNNING' AND lease_until < NOW(6) AND attempts >= ?", error, maxAttempts);
+    }
+
+    public int requeueExpiredLeases() {
+        return jdbcTemplate.update("UPDATE exit_slip_validation_jobs SET status = 'PENDING', lease_until = NULL "
+                + "WHERE status = 'RUNNING' AND lease_until < NOW(6)");
+    }
+
+    public int purgeFinishedBefore(LocalDateTime cutoff) {
+        jdbcTemplate.update("DELETE p FROM exit_slip_validation_job_products p "
+                + "JOIN exit_slip_validation_jobs j ON j.id = p.job_id "
+                + "WHERE j.status IN ('SUCCEEDED', 'FAILED') AND j.finished_at < ?", cutoff);
+        return jdbcTemplate.update("DELETE FROM exit_slip_validation_jobs "
+                + "WHERE status IN ('SUCCEEDED', 'FAILED') AND finished_at < ?", cutoff);
+    }
+
+    public record Claim(long jobId, long exitSlipId, int attempt) {
+    }
+}
@@ -1,11 +1,19 @@
 package com.example.tricol.tricolspringbootrestapi.security;
 
+import com.nimbusds.jose.Algorithm;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jwt.JWT;
+import com.nimbusds.jwt.JWTParser;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.security.authentication.AbstractAuthenticationToken;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -20,6 +28,9 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.text.ParseException;
+import java.util.List;
+import java.util.Optional;
 
 @Component
 @Slf4j
@@ -29,17 +40,29 @@ public class CompositeAuthenticationFilter extends OncePerRequestFilter {
     private final CustomUserDetailsService customUserDetailsService;
     private final JwtDecoder keycloakJwtDecoder;
     private final KeycloakJwtAuthenticationConverter keycloakJwtConverter;
+    private final MeterRegistry meterRegistry;
+    private final String keycloakIssuer;
+    private final PermissionEpochTable permissionEpochTable;
+    private final boolean statelessAuthorization;
 
     @Autowired
     public CompositeAuthenticationFilter(
             JwtTokenProvider localTokenProvider,
             CustomUserDetailsService customUserDetailsService,
             @Lazy JwtDecoder keycloakJwtDecoder,
-            KeycloakJwtAuthenticationConverter keycloakJwtConverter) {
+            KeycloakJwtAuthenticationConverter keycloakJwtConverter,
+            MeterRegistry meterRegistry,
+            @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}") String keycloakIssuer,
+            PermissionEpochTable permissionEpochTable,
+            @Value("${app.security.stateless-authorization:false}") boolean statelessAuthorization) {
         this.localTokenProvider = localTokenProvider;
         this.customUserDetailsService = customUserDetailsService;
         this.keycloakJwtDecoder = keycloakJwtDecoder;
         this.keycloakJwtConverter = keycloakJwtConverter;
+        this.meterRegistry = meterRegistry;
+        this.keycloakIssuer = keycloakIssuer;
+        this.permissionEpochTable = permissionEpochTable;
+        this.statelessAuthorization = statelessAuthorization;
     }
 
     @Override
@@ -49,14 +72,16 @@ public class CompositeAuthenticationFilter extends OncePerRequestFilter {
             String jwt = getJwtFromRequest(request);
 
             if (StringUtils.hasText(jwt)) {
-                // Try local JWT validation first
-                if (tryLocalAuthentication(jwt, request)) {
-                    log.debug("Authenticated via local JWT");
-                }
-                // Try Keycloak JWT validation
-                else if (tryKeycloakAuthentication(jwt, request)) {
-                    log.debug("Authenticated via Keycloak OAuth2");
-                }
+                TokenRoute route = route(jwt);
+                Timer.Sample sample = Timer.start(meterRegistry);
+                boolean authenticated = switch (route) {
+                    case LOCAL -> tryLocalAuthentication(jwt, request);
+                    case KEYCLOAK -> tryKeycloakAuthentication(jwt, request);
+                    case REJECTED -> false;
+                };
+                sample.stop(meterRegistry.timer("auth.token.verification",
+                        "route", route.name().toLowerCase(), "outcome", authenticated ? "success" : "failure"));
+                log.debug("Token routed to {}, authenticated: {}", route, authenticated);
             }
         } catch (Exception ex) {
             log.error("Could not set user authentication in security context", ex);
@@ -65,13 +90,40 @@ public class CompositeAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Picks the verifier from the unverified header and claims: HMAC tokens issued by this API go to the
+     * local provider, asymmetric tokens from the configured Keycloak realm to the JWKS decoder.
+     * Anything else is rejected without any signature check.
+     */
+    private TokenRoute route(String jwt) {
+        try {
+            JWT unverified = JWTParser.parse(jwt);
+            Algorithm alg = unverified.getHeader().getAlgorithm();
+            String issuer = unverified.getJWTClaimsSet().getIssuer();
+
+            // Local tokens issued before the iss claim was added have none
+            if (JWSAlgorithm.Family.HMAC_SHA.contains(alg)
+                    && (issuer == null || issuer.equals(localTokenProvider.getIssuer()))) {
+                return TokenRoute.LOCAL;
+            }
+            if ((JWSAlgorithm.Family.RSA.contains(alg) || JWSAlgorithm.Family.EC.contains(alg))
+                    && keycloakIssuer.equals(issuer)) {
+                return TokenRoute.KEYCLOAK;
+            }
+        } catch (ParseException ex) {
+            log.debug("Malformed bearer token: {}", ex.getMessage());
+        }
+        return TokenRoute.REJECTED;
+    }
+
      // Attempts to authenticate using local JWT (internal users)
     
     private boolean tryLocalAuthentication(String jwt, HttpServletRequest request) {
         try {
-            if (localTokenProvider.validateToken(jwt)) {
-                String username = localTokenProvider.getUsernameFromJWT(jwt);
-                UserDetails userDetails = customUserDetailsService.loadUserByUsername(username);
+            Optional<Claims> claims = localTokenProvider.validateAndExtract(jwt);
+            if (claims.isPresent()) {
+                UserDetails userDetails = principalFromClaims(claims.get())
+                        .orElseGet(() -> customUserDetailsService.loadUserByUsername(claims.get().getSubject()));
                 
                 UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
@@ -86,6 +138,25 @@ public class CompositeAuthenticationFilter extends OncePerRequestFilter {
         return false;
     }
 
+    /**
+     * Stateless mode: trusts the authorities signed into an access token as long as its permission
+     * epoch ("pe") is still the user's current one. Refresh tokens, tokens minted before the claim
+     * existed and stale tokens fall back to loading the user.
+     */
+    private Optional<UserDetails> principalFromClaims(Claims claims) {
+        if (!statelessAuthorization) {
+            return Optional.empty();
+        }
+        Long userId = claims.get("userId", Long.class);
+        Long epoch = claims.get("pe", Long.class);
+        List<?> authorities = claims.get("authorities", List.class);
+        if (userId == null || epoch == null || authorities == null || !permissionEpochTable.isCurrent(userId, epoch)) {
+            return Optional.empty();
+        }
+        return Optional.of(new CustomUserDetails(userId, claims.getSubject(),
+                authorities.stream().map(String::valueOf).toList(), epoch));
+    }
+
     // Attempts to authenticate using Keycloak JWT (OAuth2/SSO)
     private boolean tryKeycloakAuthentication(String jwt, HttpServletRequest request) {
         try {
@@ -102,6 +173,10 @@ public class CompositeAuthenticationFilter extends OncePerRequestFilter {
         return false;
     }
 
+    private enum TokenRoute {
+        LOCAL, KEYCLOAK, REJECTED
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken)) {
@@ -1,6 +1,10 @@
 package com.example.tricol.tricolspringbootrestapi.security;
 
+import com.example.tricol.tricolspringbootrestapi.enums.PermissionName;
+import com.example.tricol.tricolspringbootrestapi.model.Permission;
+import com.example.tricol.tricolspringbootrestapi.model.RoleApp;
 import com.example.tricol.tricolspringbootrestapi.model.UserApp;
+import com.example.tricol.tricolspringbootrestapi.model.UserPermission;
 import lombok.Getter;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -9,51 +13,97 @@ import org.springframework.security.core.userdetails.UserDetails;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
 
+/**
+ * Immutable snapshot of a user's credentials and resolved authorities, shared across requests by {@link UserAuthorityCache}.
+ */
 public class CustomUserDetails implements UserDetails {
     
+    private static final String ROLE_PREFIX = "ROLE_";
+    
     @Getter
     private final Long userId;
     private final String username;
     private final String password;
+    @Getter
+    private final String firstName;
+    @Getter
+    private final String lastName;
     private final boolean enabled;
+    // Checked by PermissionMaskExpressionRoot for hasAuthority; the string authorities are kept for tokens and hasRole
+    @Getter
+    private final PermissionMask permissionMask;
     private final Collection<? extends GrantedAuthority> authorities;
+    @Getter
+    private final long permissionEpoch;
     
     public CustomUserDetails(UserApp user) {
         this.userId = user.getId();
         this.username = user.getEmail();
         this.password = user.getPassword();
+        this.firstName = user.getFirstName();
+        this.lastName = user.getLastName();
         this.enabled = user.getActive();
-        this.authorities = buildAuthorities(user);
+        
+        List<String> roles = new ArrayList<>();
+        PermissionMask mask = PermissionMask.NONE;
+        
+        // Role layer: union of the default permissions of every role
+        for (RoleApp role : user.getRoles()) {
+            roles.add(role.getName().name());
+            for (Permission permission : role.getDefaultPermissions()) {
+                mask = withPermission(mask, permission.getName(), true);
+            }
+        }
+        
+        // Override layer: user-specific grants and revocations, applied in order
+        for (UserPermission userPermission : user.getUserPermissions()) {
+            mask = withPermission(mask, userPermission.getPermission().getName(), userPermission.getGranted());
+        }
+        
+        this.permissionMask = mask;
+        this.authorities = buildAuthorities(roles, mask);
+        this.permissionEpoch = user.getPermissionEpoch() != null ? user.getPermissionEpoch() : 0L;
     }
     
-    private Collection<? extends GrantedAuthority> buildAuthorities(UserApp user) {
-        List<String> permissions = new ArrayList<>();
+    // Principal rebuilt from the claims of a verified local JWT (stateless authorization), it has no password
+    public CustomUserDetails(Long userId, String username, List<String> authorities, long permissionEpoch) {
+        this.userId = userId;
+        this.username = username;
+        this.password = null;
+        this.firstName = null;
+        this.lastName = null;
+        this.enabled = true;
         
-        // Add role-based permissions
-        user.getRoles().forEach(role -> {
-            permissions.add("ROLE_" + role.getName().name());
-            role.getDefaultPermissions().forEach(permission -> 
-                permissions.add(permission.getName())
-            );
-        });
-        
-        // Apply user-specific permission overrides
-        user.getUserPermissions().forEach(userPermission -> {
-            String permissionName = userPermission.getPermission().getName();
-            if (userPermission.getGranted()) {
-                if (!permissions.contains(permissionName)) {
-                    permissions.add(permissionName);
-                }
+        List<String> roles = new ArrayList<>();
+        PermissionMask mask = PermissionMask.NONE;
+        for (String authority : authorities) {
+            if (authority.startsWith(ROLE_PREFIX)) {
+                roles.add(authority.substring(ROLE_PREFIX.length()));
             } else {
-                permissions.remove(permissionName);
+                mask = withPermission(mask, authority, true);
             }
-        });
+        }
         
-        return permissions.stream()
-                .map(SimpleGrantedAuthority::new)
-                .collect(Collectors.toList());
+        this.permissionMask = mask;
+        this.authorities = buildAuthorities(roles, mask);
+        this.permissionEpoch = permissionEpoch;
+    }
+    
+    // Names outside PermissionName are not backed by any @PreAuthorize check and are dropped
+    private static PermissionMask withPermission(PermissionMask mask, String name, boolean granted) {
+        PermissionName permission = PermissionName.lookup(name);
+        if (permission == null) {
+            return mask;
+        }
+        return granted ? mask.with(permission) : mask.without(permission);
+    }
+    
+    private static List<GrantedAuthority> buildAuthorities(List<String> roles, PermissionMask mask) {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        roles.forEach(role -> authorities.add(new SimpleGrantedAuthority(ROLE_PREFIX + role)));
+        authorities.addAll(mask.authorities());
+        return List.copyOf(authorities);
     }
 
     @Override
@@ -6,22 +6,49 @@ import com.example.tricol.tricolspringbootrestapi.model.UserPermission;
 import com.example.tricol.tricolspringbootrestapi.repository.UserRepository;
 
 import java.util.List;
-import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
-@RequiredArgsConstructor
 public class CustomUserDetailsService implements UserDetailsService {
     
     private final UserRepository userRepository;
+    private final UserAuthorityCache userAuthorityCache;
+    private final PermissionEpochTable permissionEpochTable;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public CustomUserDetailsService(UserRepository userRepository,
+                                    UserAuthorityCache userAuthorityCache,
+                                    PermissionEpochTable permissionEpochTable,
+                                    PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.userAuthorityCache = userAuthorityCache;
+        this.permissionEpochTable = permissionEpochTable;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
     
+    // Cache hits must not open a transaction (and borrow a connection), so only the loader runs in one
     @Override
-    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+        CustomUserDetails user = userAuthorityCache.get(email, this::loadInTransaction);
+        // A change made on another node only evicts the entry there: this node sees it as a newer epoch
+        if (permissionEpochTable.isStale(user.getUserId(), user.getPermissionEpoch())) {
+            userAuthorityCache.evictStale(email, user);
+            user = userAuthorityCache.get(email, this::loadInTransaction);
+        }
+        return user;
+    }
+
+    private CustomUserDetails loadInTransaction(String email) {
+        return readOnlyTransaction.execute(status -> loadFromDatabase(email));
+    }
+
+    private CustomUserDetails loadFromDatabase(String email) {
         // Load user with roles only
         UserApp user = userRepository.findByEmailWithRoles(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + email));
@@ -38,4 +65,4 @@ public class CustomUserDetailsService implements UserDetailsService {
         
         return new CustomUserDetails(user);
     }
-}
\ No newline at end of file
+}
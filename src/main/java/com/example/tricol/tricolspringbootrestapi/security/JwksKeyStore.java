@@ -0,0 +1,169 @@
+package com.example.tricol.tricolspringbootrestapi.security;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keycloak signing keys for the JWT decoder, kept off the request path:
+ * - a background task refetches the JWKS every refresh interval;
+ * - a token with an unknown kid triggers one refresh (at most once per cooldown);
+ * - concurrent refreshes share a single HTTP fetch;
+ * - when Keycloak is unreachable the last known-good keys are served, and they are
+ *   persisted to a local file so a restart during an outage still has them.
+ */
+@Component
+@Slf4j
+public class JwksKeyStore implements JWKSource<SecurityContext> {
+
+    private final URI jwkSetUri;
+    private final Path cacheFile;
+    private final Duration refreshInterval;
+    private final Duration unknownKidCooldown;
+    private final Duration requestTimeout;
+    private final HttpClient httpClient;
+
+    private final AtomicReference<JWKSet> keys = new AtomicReference<>(new JWKSet());
+    private final AtomicReference<CompletableFuture<JWKSet>> inFlight = new AtomicReference<>();
+    private volatile long lastRefreshNanos = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+    private ScheduledExecutorService scheduler;
+
+    public JwksKeyStore(@Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") URI jwkSetUri,
+                        @Value("${app.security.jwks.cache-file:data/keycloak-jwks.json}") Path cacheFile,
+                        @Value("${app.security.jwks.refresh-interval:5m}") Duration refreshInterval,
+                        @Value("${app.security.jwks.unknown-kid-cooldown:30s}") Duration unknownKidCooldown,
+                        @Value("${app.security.jwks.request-timeout:3s}") Duration requestTimeout) {
+        this.jwkSetUri = jwkSetUri;
+        this.cacheFile = cacheFile;
+        this.refreshInterval = refreshInterval;
+        this.unknownKidCooldown = unknownKidCooldown;
+        this.requestTimeout = requestTimeout;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(requestTimeout).build();
+        loadCacheFile();
+    }
+
+    // First fetch also runs in the background, startup never waits for Keycloak
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jwks-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refresh, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) throws KeySourceException {
+        List<JWK> matches = jwkSelector.select(keys.get());
+        if (!matches.isEmpty() || System.nanoTime() - lastRefreshNanos < unknownKidCooldown.toNanos()) {
+            return matches;
+        }
+        // Unknown kid: the realm may have rotated its keys since the last refresh
+        try {
+            return jwkSelector.select(refresh().get(requestTimeout.toMillis(), TimeUnit.MILLISECONDS));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new KeySourceException("Interrupted while refreshing the JWK set", ex);
+        } catch (ExecutionException | TimeoutException ex) {
+            return matches;
+        }
+    }
+
+    /**
+     * Fetches the JWK set once, or joins the fetch already running. Never fails: on error the
+     * returned future holds the keys currently served.
+     */
+    public CompletableFuture<JWKSet> refresh() {
+        CompletableFuture<JWKSet> fetch = new CompletableFuture<>();
+        CompletableFuture<JWKSet> running = inFlight.compareAndExchange(null, fetch);
+        if (running != null) {
+            return running;
+        }
+        lastRefreshNanos = System.nanoTime();
+        try {
+            JWKSet fetched = fetch();
+            keys.set(fetched);
+            saveCacheFile(fetched);
+            fetch.complete(fetched);
+        } catch (Exception ex) {
+            log.warn("Could not refresh JWK set from {}, still serving {} known keys: {}",
+                    jwkSetUri, keys.get().size(), ex.getMessage());
+            fetch.complete(keys.get());
+        } finally {
+            inFlight.set(null);
+        }
+        return fetch;
+    }
+
+    public JWKSet currentKeys() {
+        return keys.get();
+    }
+
+    private JWKSet fetch() throws IOException, InterruptedException, ParseException {
+        HttpRequest request = HttpRequest.newBuilder(jwkSetUri)
+                .timeout(requestTimeout)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("JWKS endpoint answered HTTP " + response.statusCode());
+        }
+        return JWKSet.parse(response.body()).toPublicJWKSet();
+    }
+
+    private void loadCacheFile() {
+        if (!Files.isRegularFile(cacheFile)) {
+            return;
+        }
+        try {
+            keys.set(JWKSet.load(cacheFile.toFile()));
+            log.info("Loaded {} last known JWKs from {}", keys.get().size(), cacheFile);
+        } catch (IOException | ParseException ex) {
+            log.warn("Ignoring unreadable JWKS cache file {}: {}", cacheFile, ex.getMessage());
+        }
+    }
+
+    // Written to a temp file then moved, so a crash never leaves a truncated cache behind
+    private void saveCacheFile(JWKSet jwkSet) {
+        try {
+            Path directory = cacheFile.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path tmp = Files.createTempFile(directory, "jwks", ".tmp");
+            Files.writeString(tmp, jwkSet.toString(true));
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            log.warn("Could not write JWKS cache file {}: {}", cacheFile, ex.getMessage());
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.example.tricol.tricolspringbootrestapi.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
@@ -9,8 +13,14 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Component
@@ -20,13 +30,27 @@ public class JwtTokenProvider {
     private final SecretKey jwtSecret;
     private final int jwtExpirationInMs;
     private final int refreshTokenExpirationInMs;
+    @Getter
+    private final String issuer;
+    // Immutable and thread-safe, shared by all requests
+    private final JwtParser parser;
+    // SHA-256 of the raw token -> claims already verified for it
+    private final Cache<String, Claims> verifiedTokens;
     
     public JwtTokenProvider(@Value("${app.jwtSecret:48484984984564654iuhogffiuyftyvio498498498484988}") String jwtSecret,
                            @Value("${app.jwtExpirationInMs:86400000}") int jwtExpirationInMs,
-                           @Value("${app.refreshTokenExpirationInMs:604800000}") int refreshTokenExpirationInMs) {
-        this.jwtSecret = Keys.hmacShaKeyFor(jwtSecret.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                           @Value("${app.refreshTokenExpirationInMs:604800000}") int refreshTokenExpirationInMs,
+                           @Value("${app.jwt.issuer:tricol-api}") String issuer,
+                           @Value("${app.jwt.verified-token-cache-size:10000}") long verifiedTokenCacheSize) {
+        this.jwtSecret = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
         this.jwtExpirationInMs = jwtExpirationInMs;
         this.refreshTokenExpirationInMs = refreshTokenExpirationInMs;
+        this.issuer = issuer;
+        this.parser = Jwts.parser().verifyWith(this.jwtSecret).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedTokenCacheSize)
+                .expireAfter(new UntilTokenExpiry())
+                .build();
     }
     
     public String generateToken(Authentication authentication) {
@@ -38,9 +62,11 @@ public class JwtTokenProvider {
                 .collect(Collectors.toList());
         
         return Jwts.builder()
+                .issuer(issuer)
                 .subject(userPrincipal.getUsername())
                 .claim("userId", userPrincipal.getUserId())
                 .claim("authorities", authorities)
+                .claim("pe", userPrincipal.getPermissionEpoch())
                 .issuedAt(new Date())
                 .expiration(expiryDate)
                 .signWith(jwtSecret)
@@ -52,6 +78,7 @@ public class JwtTokenProvider {
         Date expiryDate = new Date(System.currentTimeMillis() + refreshTokenExpirationInMs);
         
         return Jwts.builder()
+                .issuer(issuer)
                 .subject(userPrincipal.getUsername())
                 .claim("userId", userPrincipal.getUserId())
                 .claim("type", "refresh")
@@ -61,24 +88,59 @@ public class JwtTokenProvider {
                 .compact();
     }
     
-    public String getUsernameFromJWT(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(jwtSecret)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        
-        return claims.getSubject();
-    }
-    public boolean validateToken(String authToken) {
+    /**
+     * Verifies the signature and expiry of a local token and returns its claims, or empty if the token is
+     * invalid. Tokens verified recently are answered from a digest cache until they expire.
+     */
+    public Optional<Claims> validateAndExtract(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        String digest = digest(token);
+        Claims cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
         try {
-            Jwts.parser().verifyWith(jwtSecret).build().parseSignedClaims(authToken);
-            return true;
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            if (claims.getExpiration() != null) {
+                verifiedTokens.put(digest, claims);
+            }
+            return Optional.of(claims);
         } catch (JwtException ex) {
             log.error("Invalid JWT token: {}", ex.getMessage());
         } catch (IllegalArgumentException ex) {
             log.error("JWT claims string is empty");
         }
-        return false;
+        return Optional.empty();
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    // Cached claims live until the token's own exp, never longer
+    private static final class UntilTokenExpiry implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String digest, Claims claims, long currentTime) {
+            long remainingMs = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String digest, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(digest, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String digest, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
-}
\ No newline at end of file
+}
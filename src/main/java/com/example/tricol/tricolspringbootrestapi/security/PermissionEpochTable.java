@@ -0,0 +1,68 @@
+package com.example.tricol.tricolspringbootrestapi.security;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory copy of users.permission_epoch, used by the stateless authorization mode to decide whether
+ * the authorities signed into a local JWT are still current. Only users whose roles or permissions were
+ * ever changed have a non-zero epoch, so the table stays small. Other nodes pick a change up within
+ * one refresh interval, for signed tokens and for the authorities cached by {@link UserAuthorityCache} alike.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PermissionEpochTable {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // null until the first refresh succeeds: no token is trusted before the table is known
+    private volatile Map<Long, Long> epochs;
+
+    @Scheduled(fixedDelayString = "${app.security.permission-epoch.refresh-interval:5s}")
+    public void refresh() {
+        try {
+            Map<Long, Long> loaded = new HashMap<>();
+            jdbcTemplate.query("SELECT id, permission_epoch FROM users WHERE permission_epoch > 0",
+                    (RowCallbackHandler) rs -> loaded.put(rs.getLong(1), rs.getLong(2)));
+            epochs = loaded;
+        } catch (DataAccessException ex) {
+            log.warn("Could not refresh permission epochs, keeping the previous table: {}", ex.getMessage());
+        }
+    }
+
+    // Makes the change visible on this node right away instead of at the next scheduled refresh
+    public void refreshAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refresh();
+                }
+            });
+        } else {
+            refresh();
+        }
+    }
+
+    public boolean isCurrent(long userId, long tokenEpoch) {
+        Map<Long, Long> current = epochs;
+        return current != null && tokenEpoch >= current.getOrDefault(userId, 0L);
+    }
+
+    // Unlike isCurrent, an unknown table proves nothing: cached authorities are kept until it is loaded
+    public boolean isStale(long userId, long loadedEpoch) {
+        Map<Long, Long> current = epochs;
+        return current != null && loadedEpoch < current.getOrDefault(userId, 0L);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.tricol.tricolspringbootrestapi.security;
+
+import com.example.tricol.tricolspringbootrestapi.enums.PermissionName;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A set of {@link PermissionName}s as one long, bit i being the permission with ordinal i.
+ */
+public record PermissionMask(long bits) {
+
+    public static final PermissionMask NONE = new PermissionMask(0L);
+
+    private static final PermissionName[] PERMISSIONS = PermissionName.values();
+    // One shared authority instance per permission, principals do not allocate their own
+    private static final GrantedAuthority[] AUTHORITIES = new GrantedAuthority[PERMISSIONS.length];
+
+    static {
+        if (PERMISSIONS.length > Long.SIZE) {
+            throw new IllegalStateException("PermissionMask holds at most 64 permissions");
+        }
+        for (PermissionName permission : PERMISSIONS) {
+            AUTHORITIES[permission.ordinal()] = new SimpleGrantedAuthority(permission.name());
+        }
+    }
+
+    public PermissionMask with(PermissionName permission) {
+        return new PermissionMask(bits | bit(permission));
+    }
+
+    public PermissionMask without(PermissionName permission) {
+        return new PermissionMask(bits & ~bit(permission));
+    }
+
+    public PermissionMask union(PermissionMask other) {
+        return new PermissionMask(bits | other.bits);
+    }
+
+    public boolean has(PermissionName permission) {
+        return (bits & bit(permission)) != 0;
+    }
+
+    public List<GrantedAuthority> authorities() {
+        List<GrantedAuthority> authorities = new ArrayList<>(Long.bitCount(bits));
+        for (long remaining = bits; remaining != 0; remaining &= remaining - 1) {
+            authorities.add(AUTHORITIES[Long.numberOfTrailingZeros(remaining)]);
+        }
+        return authorities;
+    }
+
+    private static long bit(PermissionName permission) {
+        return 1L << permission.ordinal();
+    }
+}
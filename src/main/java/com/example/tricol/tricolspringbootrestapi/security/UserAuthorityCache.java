@@ -0,0 +1,63 @@
+package com.example.tricol.tricolspringbootrestapi.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Resolved {@link CustomUserDetails} per email, so authenticated requests do not hit the database.
+ * Entries are evicted when an admin changes the user's roles or permissions; other nodes find out through
+ * {@link PermissionEpochTable}, and the TTL is only a backstop.
+ * Hit/miss counts are published as cache.gets{cache="user-authorities"}.
+ */
+@Component
+public class UserAuthorityCache {
+
+    static final String CACHE_NAME = "user-authorities";
+
+    private final Cache<String, CustomUserDetails> cache;
+
+    public UserAuthorityCache(MeterRegistry meterRegistry,
+                              @Value("${app.security.authority-cache.max-size:10000}") long maxSize,
+                              @Value("${app.security.authority-cache.ttl:5m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public CustomUserDetails get(String email, Function<String, CustomUserDetails> loader) {
+        return cache.get(email, loader);
+    }
+
+    // Drops an entry found to be older than the user's permission epoch, the next get() reloads it
+    public void evictStale(String email, CustomUserDetails stale) {
+        cache.asMap().remove(email, stale);
+    }
+
+    /**
+     * Evicts now and again once the current transaction commits, so a request that reloaded the
+     * user while the change was still uncommitted cannot keep the old authorities cached.
+     */
+    public void evictAfterCommit(String email) {
+        cache.invalidate(email);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(email);
+                }
+            });
+        }
+    }
+}
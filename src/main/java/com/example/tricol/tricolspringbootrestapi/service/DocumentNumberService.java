@@ -0,0 +1,16 @@
+package com.example.tricol.tricolspringbootrestapi.service;
+
+import java.util.List;
+
+public interface DocumentNumberService {
+    // BS-yyyyMMdd-0001, numbered per day
+    String nextExitSlipNumber();
+
+    // LOT-yyyy-001, numbered per year
+    String nextLotNumber();
+
+    // Consecutive lot numbers for a whole receipt, reserved in one step
+    List<String> nextLotNumbers(int count);
+
+    long nextValue(String sequenceKey);
+}
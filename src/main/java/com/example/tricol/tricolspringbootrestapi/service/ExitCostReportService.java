@@ -0,0 +1,11 @@
+package com.example.tricol.tricolspringbootrestapi.service;
+
+import com.example.tricol.tricolspringbootrestapi.dto.response.ExitCostReportResponse;
+
+import java.time.LocalDate;
+
+public interface ExitCostReportService {
+    ExitCostReportResponse getCostByWorkshop(LocalDate from, LocalDate to);
+
+    ExitCostReportResponse getCostByReason(LocalDate from, LocalDate to);
+}
@@ -0,0 +1,8 @@
+package com.example.tricol.tricolspringbootrestapi.service;
+
+import com.example.tricol.tricolspringbootrestapi.dto.response.ValidationJobResponse;
+
+public interface ExitSlipValidationJobService {
+    ValidationJobResponse submitValidation(Long exitSlipId);
+    ValidationJobResponse getJob(Long jobId);
+}
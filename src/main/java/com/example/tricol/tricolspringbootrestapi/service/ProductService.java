@@ -2,6 +2,8 @@ package com.example.tricol.tricolspringbootrestapi.service;
 
 import com.example.tricol.tricolspringbootrestapi.dto.request.ProductDTO;
 import com.example.tricol.tricolspringbootrestapi.model.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
 import java.util.List;
 
@@ -20,5 +22,8 @@ public interface ProductService {
     Double getProductStock(Long id);
 
     //alert stock
-    List<ProductDTO> getLowStockProducts();
+    Page<ProductDTO> getLowStockProducts(Pageable pageable);
+
+    // Keyset variant: the page of low stock products with an id greater than afterId
+    List<ProductDTO> getLowStockProductsAfter(long afterId, int size);
 }
@@ -0,0 +1,11 @@
+package com.example.tricol.tricolspringbootrestapi.service;
+
+import com.example.tricol.tricolspringbootrestapi.dto.response.StockAsOfResponse;
+
+import java.time.LocalDateTime;
+
+public interface StockHistoryService {
+    StockAsOfResponse getProductStockAsOf(Long productId, LocalDateTime at);
+
+    StockAsOfResponse getCategoryStockAsOf(String category, LocalDateTime at);
+}
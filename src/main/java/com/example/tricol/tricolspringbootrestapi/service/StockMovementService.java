@@ -1,6 +1,7 @@
 package com.example.tricol.tricolspringbootrestapi.service;
 
 import com.example.tricol.tricolspringbootrestapi.dto.response.StockMovementResponse;
+import com.example.tricol.tricolspringbootrestapi.dto.response.StockMovementSliceResponse;
 import com.example.tricol.tricolspringbootrestapi.model.StockMovement;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -16,4 +17,15 @@ public interface StockMovementService {
             StockMovement.Type type,
             String lotNumber,
             Pageable pageable);
+
+    // Newest first, continuing after the movement encoded in cursor (null for the first page)
+    StockMovementSliceResponse searchMovementsAfter(
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            Long productId,
+            String reference,
+            StockMovement.Type type,
+            String lotNumber,
+            String cursor,
+            int size);
 }
@@ -0,0 +1,14 @@
+package com.example.tricol.tricolspringbootrestapi.service;
+
+import com.example.tricol.tricolspringbootrestapi.dto.response.StockValuationResponse;
+import com.example.tricol.tricolspringbootrestapi.dto.response.ValuationReconciliationResponse;
+
+public interface StockValuationService {
+    StockValuationResponse getTotalValuation();
+
+    StockValuationResponse getValuationByCategory();
+
+    StockValuationResponse getValuationBySupplier();
+
+    ValuationReconciliationResponse reconcile();
+}
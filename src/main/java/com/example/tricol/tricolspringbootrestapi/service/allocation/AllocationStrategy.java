@@ -0,0 +1,23 @@
+package com.example.tricol.tricolspringbootrestapi.service.allocation;
+
+import com.example.tricol.tricolspringbootrestapi.enums.AllocationMethod;
+import com.example.tricol.tricolspringbootrestapi.model.StockSlot;
+
+import java.util.Comparator;
+
+/**
+ * How an exit is served from the lots of a product: which lot is consumed first, and at what cost
+ * the consumed quantity leaves the valuation.
+ */
+public interface AllocationStrategy {
+
+    AllocationMethod method();
+
+    // Total order on the candidate lots, the smallest is consumed first; must end with a unique key (id)
+    Comparator<StockSlot> pickOrder();
+
+    // true: issued at the product's average cost; false: at the unit price of each consumed lot
+    default boolean averageCost() {
+        return false;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.tricol.tricolspringbootrestapi.service.allocation;
+
+import com.example.tricol.tricolspringbootrestapi.enums.AllocationMethod;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Allocation strategy per product category, from app.allocation.categories[&lt;category&gt;]=FEFO|LIFO|...
+ * Categories not listed use app.allocation.default-method (FIFO).
+ */
+@Component
+public class AllocationStrategyResolver {
+
+    private final Map<AllocationMethod, AllocationStrategy> strategies = new EnumMap<>(AllocationMethod.class);
+    private final AllocationStrategy defaultStrategy;
+    private final Map<String, AllocationMethod> methodByCategory;
+
+    @Autowired
+    public AllocationStrategyResolver(List<AllocationStrategy> strategies,
+                                      @Value("${app.allocation.default-method:FIFO}") AllocationMethod defaultMethod,
+                                      Environment environment) {
+        this(strategies, defaultMethod, Binder.get(environment)
+                .bind("app.allocation.categories", Bindable.mapOf(String.class, AllocationMethod.class))
+                .orElse(Map.of()));
+    }
+
+    public AllocationStrategyResolver(List<AllocationStrategy> strategies, AllocationMethod defaultMethod,
+                                      Map<String, AllocationMethod> methodByCategory) {
+        strategies.forEach(strategy -> this.strategies.put(strategy.method(), strategy));
+        this.defaultStrategy = require(defaultMethod);
+        this.methodByCategory = Map.copyOf(methodByCategory);
+        this.methodByCategory.values().forEach(this::require);
+    }
+
+    public AllocationStrategy forCategory(String category) {
+        AllocationMethod method = category != null ? methodByCategory.get(category) : null;
+        return method != null ? strategies.get(method) : defaultStrategy;
+    }
+
+    private AllocationStrategy require(AllocationMethod method) {
+        AllocationStrategy strategy = strategies.get(method);
+        if (strategy == null) {
+            throw new IllegalStateException("No allocation strategy registered for " + method);
+        }
+        return strategy;
+    }
+}
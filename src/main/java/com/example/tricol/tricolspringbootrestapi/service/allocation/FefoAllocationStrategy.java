@@ -0,0 +1,25 @@
+package com.example.tricol.tricolspringbootrestapi.service.allocation;
+
+import com.example.tricol.tricolspringbootrestapi.enums.AllocationMethod;
+import com.example.tricol.tricolspringbootrestapi.model.StockSlot;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+
+@Component
+public class FefoAllocationStrategy implements AllocationStrategy {
+
+    private static final Comparator<StockSlot> SOONEST_EXPIRY_FIRST = Comparator
+            .comparing(StockSlot::getExpiryDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(FifoAllocationStrategy.OLDEST_FIRST);
+
+    @Override
+    public AllocationMethod method() {
+        return AllocationMethod.FEFO;
+    }
+
+    @Override
+    public Comparator<StockSlot> pickOrder() {
+        return SOONEST_EXPIRY_FIRST;
+    }
+}
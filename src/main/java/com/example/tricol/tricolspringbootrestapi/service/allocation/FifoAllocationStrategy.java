@@ -0,0 +1,25 @@
+package com.example.tricol.tricolspringbootrestapi.service.allocation;
+
+import com.example.tricol.tricolspringbootrestapi.enums.AllocationMethod;
+import com.example.tricol.tricolspringbootrestapi.model.StockSlot;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+
+@Component
+public class FifoAllocationStrategy implements AllocationStrategy {
+
+    static final Comparator<StockSlot> OLDEST_FIRST = Comparator
+            .comparing(StockSlot::getEntryDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(StockSlot::getId);
+
+    @Override
+    public AllocationMethod method() {
+        return AllocationMethod.FIFO;
+    }
+
+    @Override
+    public Comparator<StockSlot> pickOrder() {
+        return OLDEST_FIRST;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.tricol.tricolspringbootrestapi.service.allocation;
+
+import com.example.tricol.tricolspringbootrestapi.enums.AllocationMethod;
+import com.example.tricol.tricolspringbootrestapi.model.StockSlot;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+
+@Component
+public class LifoAllocationStrategy implements AllocationStrategy {
+
+    private static final Comparator<StockSlot> NEWEST_FIRST = FifoAllocationStrategy.OLDEST_FIRST.reversed();
+
+    @Override
+    public AllocationMethod method() {
+        return AllocationMethod.LIFO;
+    }
+
+    @Override
+    public Comparator<StockSlot> pickOrder() {
+        return NEWEST_FIRST;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.tricol.tricolspringbootrestapi.service.allocation;
+
+import com.example.tricol.tricolspringbootrestapi.enums.AllocationMethod;
+import com.example.tricol.tricolspringbootrestapi.model.StockSlot;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+
+/**
+ * Lots are still drained oldest first, but the consumed quantity is valued at the product's running average
+ * (stock_value / quantity in stock_valuations), read once per product instead of walking its lots.
+ */
+@Component
+public class WeightedAverageAllocationStrategy implements AllocationStrategy {
+
+    @Override
+    public AllocationMethod method() {
+        return AllocationMethod.WEIGHTED_AVERAGE;
+    }
+
+    @Override
+    public Comparator<StockSlot> pickOrder() {
+        return FifoAllocationStrategy.OLDEST_FIRST;
+    }
+
+    @Override
+    public boolean averageCost() {
+        return true;
+    }
+}
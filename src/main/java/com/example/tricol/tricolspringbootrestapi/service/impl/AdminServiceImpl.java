@@ -8,6 +8,8 @@ import com.example.tricol.tricolspringbootrestapi.model.RoleApp;
 import com.example.tricol.tricolspringbootrestapi.model.UserApp;
 import com.example.tricol.tricolspringbootrestapi.model.UserPermission;
 import com.example.tricol.tricolspringbootrestapi.repository.*;
+import com.example.tricol.tricolspringbootrestapi.security.PermissionEpochTable;
+import com.example.tricol.tricolspringbootrestapi.security.UserAuthorityCache;
 import com.example.tricol.tricolspringbootrestapi.service.AdminService;
 import lombok.RequiredArgsConstructor;
 import java.util.List;
@@ -25,6 +27,8 @@ public class AdminServiceImpl implements AdminService {
     private final PermissionRepository permissionRepository;
     private final UserPermissionRepository userPermissionRepository;
     private final UserMapper userMapper;
+    private final UserAuthorityCache userAuthorityCache;
+    private final PermissionEpochTable permissionEpochTable;
     
     @Override
     @Transactional(readOnly = true)
@@ -45,6 +49,7 @@ public class AdminServiceImpl implements AdminService {
         if (!user.getRoles().contains(role)) {
             user.getRoles().add(role);
             userRepository.save(user);
+            authoritiesChanged(user.getId(), user.getEmail());
         }
     }
     
@@ -65,11 +70,22 @@ public class AdminServiceImpl implements AdminService {
         
         userPermission.setGranted(granted);
         userPermissionRepository.save(userPermission);
+        authoritiesChanged(user.getId(), user.getEmail());
     }
     
     @Override
     public void removeUserPermission(Long userId, Long permissionId) {
         userPermissionRepository.findByUserIdAndPermissionId(userId, permissionId)
-                .ifPresent(userPermissionRepository::delete);
+                .ifPresent(userPermission -> {
+                    userPermissionRepository.delete(userPermission);
+                    authoritiesChanged(userId, userPermission.getUser().getEmail());
+                });
+    }
+    
+    // Must stay the last write of the transaction: the epoch is bumped with a bulk update, behind the persistence context
+    private void authoritiesChanged(Long userId, String email) {
+        userRepository.incrementPermissionEpoch(userId);
+        userAuthorityCache.evictAfterCommit(email);
+        permissionEpochTable.refreshAfterCommit();
     }
-}
\ No newline at end of file
+}
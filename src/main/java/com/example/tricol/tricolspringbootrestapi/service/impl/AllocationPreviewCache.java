@@ -0,0 +1,62 @@
+package com.example.tricol.tricolspringbootrestapi.service.impl;
+
+import com.example.tricol.tricolspringbootrestapi.dto.response.AllocationPreviewResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Allocation previews by exit slip. An entry is served until one of the slip's products changes, as seen
+ * through the {@link ProductCatalogCache} change feed: every slot write also changes its product's stock.
+ */
+@Component
+public class AllocationPreviewCache {
+
+    static final String CACHE_NAME = "allocation-preview";
+
+    private final ProductCatalogCache productCatalogCache;
+    private final Cache<Long, Entry> cache;
+
+    public AllocationPreviewCache(ProductCatalogCache productCatalogCache,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.allocation-preview.max-size:2000}") long maxSize,
+                                  @Value("${app.allocation-preview.ttl:10m}") Duration ttl) {
+        this.productCatalogCache = productCatalogCache;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public AllocationPreviewResponse get(Long exitSlipId) {
+        Entry entry = cache.getIfPresent(exitSlipId);
+        if (entry == null) {
+            return null;
+        }
+        if (productCatalogCache.changedSince(entry.productIds(), entry.changeStamp())) {
+            cache.invalidate(exitSlipId);
+            return null;
+        }
+        return entry.preview();
+    }
+
+    /**
+     * changeStamp must have been read before the preview's first database read.
+     */
+    public void put(Long exitSlipId, long changeStamp, Set<Long> productIds, AllocationPreviewResponse preview) {
+        if (!productCatalogCache.changedSince(productIds, changeStamp)) {
+            cache.put(exitSlipId, new Entry(changeStamp, Set.copyOf(productIds), preview));
+        }
+    }
+
+    private record Entry(long changeStamp, Set<Long> productIds, AllocationPreviewResponse preview) {
+    }
+}
@@ -8,10 +8,13 @@ import com.example.tricol.tricolspringbootrestapi.exception.ResourceNotFoundExce
 import com.example.tricol.tricolspringbootrestapi.model.UserApp;
 import com.example.tricol.tricolspringbootrestapi.repository.UserRepository;
 import com.example.tricol.tricolspringbootrestapi.security.CustomUserDetails;
+import com.example.tricol.tricolspringbootrestapi.security.CustomUserDetailsService;
 import com.example.tricol.tricolspringbootrestapi.security.JwtTokenProvider;
 import com.example.tricol.tricolspringbootrestapi.model.RoleApp;
 import com.example.tricol.tricolspringbootrestapi.model.UserPermission;
 import com.example.tricol.tricolspringbootrestapi.service.AuthService;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -19,11 +22,14 @@ import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -35,38 +41,22 @@ public class AuthServiceImpl implements AuthService {
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
     private final JwtTokenProvider tokenProvider;
+    private final CustomUserDetailsService customUserDetailsService;
+    private final MeterRegistry meterRegistry;
 
     
+    // No transaction: the principal comes from the authority cache, and no connection is held while BCrypt runs
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public JwtResponse login(LoginRequest loginRequest, HttpServletRequest request) {
-        Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            loginRequest.getEmail(),
-                            loginRequest.getPassword()
-                    )
-            );
-
-            CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
-            String jwt = tokenProvider.generateToken(authentication);
-            String refreshToken = tokenProvider.generateRefreshToken(authentication);
-
-            List<String> roles = userDetails.getAuthorities().stream()
-                    .map(GrantedAuthority::getAuthority)
-                    .filter(auth -> auth.startsWith("ROLE_"))
-                    .map(role -> role.substring(5))
-                    .collect(Collectors.toList());
-
-            List<String> permissions = userDetails.getAuthorities().stream()
-                    .map(GrantedAuthority::getAuthority)
-                    .filter(auth -> !auth.startsWith("ROLE_"))
-                    .collect(Collectors.toList());
-
-            UserApp user = findByEmail(loginRequest.getEmail());
-
-            return new JwtResponse(jwt, refreshToken, user.getId(),
-                                 user.getEmail(), user.getFirstName(),
-                                 user.getLastName(), roles, permissions);
+        Authentication authentication = time("login", "authenticate", () -> authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken(
+                        loginRequest.getEmail(),
+                        loginRequest.getPassword()
+                )
+        ));
 
+        return time("login", "tokens", () -> toJwtResponse(authentication));
     }
     
     @Override
@@ -83,20 +73,32 @@ public class AuthServiceImpl implements AuthService {
     }
     
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public JwtResponse refreshToken(String refreshToken) {
-        if (!tokenProvider.validateToken(refreshToken)) {
-            throw new BadCredentialsException("Invalid or expired refresh token");
-        }
-        
-        String username = tokenProvider.getUsernameFromJWT(refreshToken);
-        UserApp user = findByEmail(username);
+        String username = time("refresh", "verify", () -> tokenProvider.validateAndExtract(refreshToken)
+                .map(Claims::getSubject)
+                .orElseThrow(() -> new BadCredentialsException("Invalid or expired refresh token")));
         
-        CustomUserDetails userDetails = new CustomUserDetails(user);
+        CustomUserDetails userDetails = time("refresh", "load-user", () -> loadUser(username));
         Authentication authentication = new UsernamePasswordAuthenticationToken(
                 userDetails, null, userDetails.getAuthorities());
         
-        String newToken = tokenProvider.generateToken(authentication);
-        String newRefreshToken = tokenProvider.generateRefreshToken(authentication);
+        return time("refresh", "tokens", () -> toJwtResponse(authentication));
+    }
+    
+    private CustomUserDetails loadUser(String email) {
+        try {
+            return (CustomUserDetails) customUserDetailsService.loadUserByUsername(email);
+        } catch (UsernameNotFoundException ex) {
+            throw new ResourceNotFoundException("User not found with email: " + email);
+        }
+    }
+    
+    // Everything the response needs is on the principal, the user is not loaded a second time
+    private JwtResponse toJwtResponse(Authentication authentication) {
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        String jwt = tokenProvider.generateToken(authentication);
+        String refreshToken = tokenProvider.generateRefreshToken(authentication);
         
         List<String> roles = userDetails.getAuthorities().stream()
                 .map(GrantedAuthority::getAuthority)
@@ -109,9 +111,13 @@ public class AuthServiceImpl implements AuthService {
                 .filter(auth -> !auth.startsWith("ROLE_"))
                 .collect(Collectors.toList());
         
-        return new JwtResponse(newToken, newRefreshToken, user.getId(), 
-                             user.getEmail(), user.getFirstName(), 
-                             user.getLastName(), roles, permissions);
+        return new JwtResponse(jwt, refreshToken, userDetails.getUserId(),
+                             userDetails.getUsername(), userDetails.getFirstName(),
+                             userDetails.getLastName(), roles, permissions);
+    }
+    
+    private <T> T time(String flow, String stage, Supplier<T> step) {
+        return meterRegistry.timer("auth.stage", "flow", flow, "stage", stage).record(step);
     }
     
     @Override
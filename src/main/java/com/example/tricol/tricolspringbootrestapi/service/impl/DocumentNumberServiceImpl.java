@@ -0,0 +1,135 @@
+package com.example.tricol.tricolspringbootrestapi.service.impl;
+
+import com.example.tricol.tricolspringbootrestapi.model.DocumentSequence;
+import com.example.tricol.tricolspringbootrestapi.repository.DocumentSequenceRepository;
+import com.example.tricol.tricolspringbootrestapi.service.DocumentNumberService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hi/lo allocator: each node reserves a block of values per sequence key in its own short
+ * transaction, then hands them out from memory. Numbers are unique across nodes and restarts;
+ * a restart (or a multi-value request that overflows the current block) skips at most the
+ * unused part of one block per key.
+ * A counter is created on first use past the highest number already issued under its prefix, so numbers
+ * written before the counters existed are never handed out again.
+ */
+@Service
+public class DocumentNumberServiceImpl implements DocumentNumberService {
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final String SLIP_PREFIX = "BS-";
+    private static final String LOT_PREFIX = "LOT-";
+
+    private final DocumentSequenceRepository documentSequenceRepository;
+    private final TransactionTemplate requiresNew;
+    private final int blockSize;
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    public DocumentNumberServiceImpl(DocumentSequenceRepository documentSequenceRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${app.document-number.block-size:20}") int blockSize) {
+        this.documentSequenceRepository = documentSequenceRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public String nextExitSlipNumber() {
+        String day = LocalDate.now().format(DAY_FORMAT);
+        return String.format("BS-%s-%04d", day, nextValue(SLIP_PREFIX + day));
+    }
+
+    @Override
+    public String nextLotNumber() {
+        return nextLotNumbers(1).get(0);
+    }
+
+    @Override
+    public List<String> nextLotNumbers(int count) {
+        int year = LocalDate.now().getYear();
+        long first = nextValues(LOT_PREFIX + year, count);
+        List<String> lotNumbers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lotNumbers.add(String.format("LOT-%d-%03d", year, first + i));
+        }
+        return lotNumbers;
+    }
+
+    @Override
+    public long nextValue(String sequenceKey) {
+        return nextValues(sequenceKey, 1);
+    }
+
+    // Returns the first of count consecutive values. A request that does not fit in what is left
+    // of the current block gets a fresh block of at least that size.
+    private long nextValues(String sequenceKey, int count) {
+        Block block = blocks.get(sequenceKey);
+        if (block == null) {
+            block = blocks.computeIfAbsent(sequenceKey, key -> new Block());
+            retirePreviousPeriods(sequenceKey);
+        }
+        synchronized (block) {
+            if (block.limit - block.next < count) {
+                int size = Math.max(blockSize, count);
+                block.next = reserveBlock(sequenceKey, size);
+                block.limit = block.next + size;
+            }
+            long first = block.next;
+            block.next += count;
+            return first;
+        }
+    }
+
+    // Committed independently of the caller so the counter row is locked only for this update
+    private long reserveBlock(String sequenceKey, int size) {
+        return requiresNew.execute(status -> {
+            if (!documentSequenceRepository.existsById(sequenceKey)) {
+                documentSequenceRepository.insertIfAbsent(sequenceKey, highestIssued(sequenceKey) + 1);
+            }
+            DocumentSequence sequence = documentSequenceRepository.findByKeyForUpdate(sequenceKey)
+                    .orElseThrow(() -> new IllegalStateException("Document sequence not found: " + sequenceKey));
+            long start = sequence.getNextValue();
+            sequence.setNextValue(start + size);
+            return start;
+        });
+    }
+
+    // Slip and lot numbers are "<key>-<suffix>"; other keys have no numbers written outside their counter
+    private long highestIssued(String sequenceKey) {
+        String pattern = sequenceKey + "-%";
+        int suffixStart = sequenceKey.length() + 2;
+        if (sequenceKey.startsWith(SLIP_PREFIX)) {
+            return documentSequenceRepository.maxSlipNumberSuffix(pattern, suffixStart);
+        }
+        if (sequenceKey.startsWith(LOT_PREFIX)) {
+            return documentSequenceRepository.maxLotNumberSuffix(pattern, suffixStart);
+        }
+        return 0;
+    }
+
+    // A new day (or year) key replaces the previous ones, which are never used again
+    private void retirePreviousPeriods(String sequenceKey) {
+        for (String prefix : List.of(SLIP_PREFIX, LOT_PREFIX)) {
+            if (sequenceKey.startsWith(prefix)) {
+                blocks.keySet().removeIf(key -> key.startsWith(prefix) && !key.equals(sequenceKey));
+            }
+        }
+    }
+
+    private static final class Block {
+        private long next;
+        private long limit;
+    }
+}
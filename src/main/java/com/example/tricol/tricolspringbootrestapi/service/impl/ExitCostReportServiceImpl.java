@@ -0,0 +1,54 @@
+package com.example.tricol.tricolspringbootrestapi.service.impl;
+
+import com.example.tricol.tricolspringbootrestapi.dto.response.ExitCostReportResponse;
+import com.example.tricol.tricolspringbootrestapi.exception.BadRequestException;
+import com.example.tricol.tricolspringbootrestapi.repository.ExitCostRollupJdbcRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.ExitCostRollupJdbcRepository.CostRow;
+import com.example.tricol.tricolspringbootrestapi.service.ExitCostReportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+// Read from the daily rollups written by each validation, never from the movements
+@Service
+@RequiredArgsConstructor
+public class ExitCostReportServiceImpl implements ExitCostReportService {
+
+    private final ExitCostRollupJdbcRepository exitCostRollupRepository;
+
+    @Override
+    public ExitCostReportResponse getCostByWorkshop(LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        return toResponse("WORKSHOP", from, to, exitCostRollupRepository.byWorkshop(from, to));
+    }
+
+    @Override
+    public ExitCostReportResponse getCostByReason(LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        return toResponse("REASON", from, to, exitCostRollupRepository.byReason(from, to));
+    }
+
+    private static void checkRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new BadRequestException("'from' must not be after 'to'");
+        }
+    }
+
+    private static ExitCostReportResponse toResponse(String groupBy, LocalDate from, LocalDate to, List<CostRow> rows) {
+        List<ExitCostReportResponse.Line> lines = rows.stream()
+                .map(row -> new ExitCostReportResponse.Line(row.key(), row.quantity(), row.cost(), row.slipCount()))
+                .toList();
+        return ExitCostReportResponse.builder()
+                .groupBy(groupBy)
+                .from(from)
+                .to(to)
+                .totalQuantity(rows.stream().mapToDouble(CostRow::quantity).sum())
+                .totalCost(rows.stream().map(CostRow::cost).reduce(BigDecimal.ZERO, BigDecimal::add))
+                .slipCount(rows.stream().mapToLong(CostRow::slipCount).sum())
+                .lines(lines)
+                .build();
+    }
+}
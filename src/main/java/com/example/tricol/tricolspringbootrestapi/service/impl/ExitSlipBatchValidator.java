@@ -0,0 +1,142 @@
+package com.example.tricol.tricolspringbootrestapi.service.impl;
+
+import com.example.tricol.tricolspringbootrestapi.dto.response.BatchValidationResponse;
+import com.example.tricol.tricolspringbootrestapi.enums.ExitSlipStatus;
+import com.example.tricol.tricolspringbootrestapi.model.ExitSlip;
+import com.example.tricol.tricolspringbootrestapi.model.ExitSlipItem;
+import com.example.tricol.tricolspringbootrestapi.repository.ExitCostRollupJdbcRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.ExitSlipRepository;
+import com.example.tricol.tricolspringbootrestapi.service.impl.StockConsumptionEngine.BatchPlan;
+import com.example.tricol.tricolspringbootrestapi.service.impl.StockConsumptionEngine.ConsumptionPlan;
+import com.example.tricol.tricolspringbootrestapi.service.outbox.OutboxWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Validates many exit slips in chunks of slips, one transaction per chunk.
+ * Within a chunk the slips are locked in id order, their products and lots are locked and loaded once,
+ * each product's lots are allocated slip after slip, and all debits are written as one set of batches.
+ * A slip that cannot be validated is reported and skipped without failing the others; a chunk whose
+ * transaction fails is reported failed as a whole, and the chunks already committed stay committed.
+ */
+@Component
+@Slf4j
+public class ExitSlipBatchValidator {
+
+    private final ExitSlipRepository exitSlipRepository;
+    private final StockConsumptionEngine stockConsumptionEngine;
+    private final StockEventStream stockEventStream;
+    private final OutboxWriter outboxWriter;
+    private final StockReservationTable stockReservationTable;
+    private final ExitCostRollupJdbcRepository exitCostRollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public ExitSlipBatchValidator(ExitSlipRepository exitSlipRepository,
+                                  StockConsumptionEngine stockConsumptionEngine,
+                                  StockEventStream stockEventStream,
+                                  OutboxWriter outboxWriter,
+                                  StockReservationTable stockReservationTable,
+                                  ExitCostRollupJdbcRepository exitCostRollupRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.exit-slip.validate-batch.chunk-size:50}") int chunkSize) {
+        this.exitSlipRepository = exitSlipRepository;
+        this.stockConsumptionEngine = stockConsumptionEngine;
+        this.stockEventStream = stockEventStream;
+        this.outboxWriter = outboxWriter;
+        this.stockReservationTable = stockReservationTable;
+        this.exitCostRollupRepository = exitCostRollupRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    public BatchValidationResponse validate(List<Long> slipIds) {
+        Set<Long> requested = new LinkedHashSet<>(slipIds);
+        // Chunks in id order: a slip submitted by two concurrent batches is always locked in the same order
+        List<Long> ids = new ArrayList<>(new TreeSet<>(requested));
+
+        Map<Long, BatchValidationResponse.Result> results = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            try {
+                results.putAll(transactionTemplate.execute(status -> validateChunk(chunk)));
+            } catch (RuntimeException ex) {
+                log.warn("Exit slip batch chunk {}..{} rolled back: {}", chunk.get(0), chunk.get(chunk.size() - 1),
+                        ex.getMessage());
+                for (Long id : chunk) {
+                    results.put(id, new BatchValidationResponse.Result(id, null, false,
+                            "Validation failed, nothing was written for this slip: " + ex.getMessage()));
+                }
+            }
+        }
+
+        List<BatchValidationResponse.Result> ordered = requested.stream().map(results::get).toList();
+        int validated = (int) ordered.stream().filter(BatchValidationResponse.Result::isSuccess).count();
+        return BatchValidationResponse.builder()
+                .validated(validated)
+                .failed(ordered.size() - validated)
+                .results(ordered)
+                .build();
+    }
+
+    private Map<Long, BatchValidationResponse.Result> validateChunk(List<Long> chunk) {
+        Map<Long, BatchValidationResponse.Result> results = new HashMap<>();
+        Map<Long, ExitSlip> drafts = new LinkedHashMap<>();
+        for (ExitSlip exitSlip : exitSlipRepository.findAllByIdForUpdate(chunk)) {
+            if (exitSlip.getStatus() == ExitSlipStatus.DRAFT) {
+                drafts.put(exitSlip.getId(), exitSlip);
+            } else {
+                results.put(exitSlip.getId(), failure(exitSlip, "Only DRAFT exit slips can be validated"));
+            }
+        }
+        for (Long id : chunk) {
+            if (!drafts.containsKey(id) && !results.containsKey(id)) {
+                results.put(id, new BatchValidationResponse.Result(id, null, false, "Exit slip not found: " + id));
+            }
+        }
+        if (drafts.isEmpty()) {
+            return results;
+        }
+
+        exitSlipRepository.fetchItems(drafts.keySet());
+        Map<Long, List<ExitSlipItem>> itemsBySlipId = new LinkedHashMap<>();
+        drafts.forEach((id, exitSlip) -> itemsBySlipId.put(id, exitSlip.getItems()));
+        BatchPlan batch = stockConsumptionEngine.planBatch(itemsBySlipId);
+        batch.failures().forEach((id, reason) -> results.put(id, failure(drafts.get(id), reason)));
+
+        ConsumptionPlan combined = ConsumptionPlan.combine(batch.plans().values());
+        stockConsumptionEngine.apply(combined);
+        stockEventStream.stockChanged(StockEventStream.SOURCE_EXIT_SLIP_BATCH, null, combined.productDeltas());
+
+        LocalDateTime validatedAt = LocalDateTime.now();
+        List<ExitSlip> validated = new ArrayList<>();
+        batch.plans().forEach((id, plan) -> {
+            ExitSlip exitSlip = drafts.get(id);
+            List<ExitSlipItem> items = exitSlip.getItems();
+            for (int i = 0; i < items.size(); i++) {
+                items.get(i).setActualQuantity(items.get(i).getRequestedQuantity());
+                items.get(i).setCost(plan.itemCosts().get(i));
+            }
+            exitSlip.setStatus(ExitSlipStatus.VALIDATED);
+            exitSlip.setValidatedAt(validatedAt);
+            exitSlip.setValidatedBy("SYSTEM");
+            outboxWriter.exitSlipValidated(exitSlip, plan.productDeltas());
+            stockReservationTable.releaseAfterCommit(id);
+            validated.add(exitSlip);
+            results.put(id, new BatchValidationResponse.Result(id, exitSlip.getSlipNumber(), true, null));
+        });
+        exitCostRollupRepository.addValidated(validated);
+        exitSlipRepository.saveAll(validated);
+        return results;
+    }
+
+    private static BatchValidationResponse.Result failure(ExitSlip exitSlip, String reason) {
+        return new BatchValidationResponse.Result(exitSlip.getId(), exitSlip.getSlipNumber(), false, reason);
+    }
+}
@@ -2,25 +2,30 @@ package com.example.tricol.tricolspringbootrestapi.service.impl;
 
 import com.example.tricol.tricolspringbootrestapi.dto.request.CreateExitSlipRequest;
 import com.example.tricol.tricolspringbootrestapi.dto.request.ExitSlipItemRequest;
+import com.example.tricol.tricolspringbootrestapi.dto.response.AllocationPreviewResponse;
+import com.example.tricol.tricolspringbootrestapi.dto.response.BatchValidationResponse;
 import com.example.tricol.tricolspringbootrestapi.dto.response.ExitSlipResponse;
 import com.example.tricol.tricolspringbootrestapi.enums.ExitSlipStatus;
-import com.example.tricol.tricolspringbootrestapi.exception.InsufficientStockException;
+import com.example.tricol.tricolspringbootrestapi.exception.InvalidOperationException;
 import com.example.tricol.tricolspringbootrestapi.exception.ResourceNotFoundException;
 import com.example.tricol.tricolspringbootrestapi.mapper.ExitSlipMapper;
 import com.example.tricol.tricolspringbootrestapi.model.*;
+import com.example.tricol.tricolspringbootrestapi.repository.ExitCostRollupJdbcRepository;
 import com.example.tricol.tricolspringbootrestapi.repository.ExitSlipRepository;
 import com.example.tricol.tricolspringbootrestapi.repository.ProductRepository;
-import com.example.tricol.tricolspringbootrestapi.repository.StockMovementRepository;
-import com.example.tricol.tricolspringbootrestapi.repository.StockSlotRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.StockLedgerJdbcRepository.SlotDebit;
+import com.example.tricol.tricolspringbootrestapi.repository.StockValuationJdbcRepository;
+import com.example.tricol.tricolspringbootrestapi.service.DocumentNumberService;
 import com.example.tricol.tricolspringbootrestapi.service.ExitSlipService;
+import com.example.tricol.tricolspringbootrestapi.service.outbox.OutboxWriter;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.List;
+import java.util.*;
 
 @Service
 @RequiredArgsConstructor
@@ -28,14 +33,22 @@ public class ExitSlipServiceImpl implements ExitSlipService {
     
     private final ExitSlipRepository exitSlipRepository;
     private final ProductRepository productRepository;
-    private final StockSlotRepository stockSlotRepository;
-    private final StockMovementRepository stockMovementRepository;
     private final ExitSlipMapper exitSlipMapper;
+    private final StockConsumptionEngine stockConsumptionEngine;
+    private final DocumentNumberService documentNumberService;
+    private final ProductCatalogCache productCatalogCache;
+    private final StockEventStream stockEventStream;
+    private final OutboxWriter outboxWriter;
+    private final StockValuationJdbcRepository stockValuationRepository;
+    private final StockReservationTable stockReservationTable;
+    private final ExitSlipBatchValidator exitSlipBatchValidator;
+    private final AllocationPreviewCache allocationPreviewCache;
+    private final ExitCostRollupJdbcRepository exitCostRollupRepository;
     
     @Transactional
     public ExitSlipResponse createExitSlip(CreateExitSlipRequest request) {
         ExitSlip exitSlip = new ExitSlip();
-        exitSlip.setSlipNumber(generateSlipNumber());
+        exitSlip.setSlipNumber(documentNumberService.nextExitSlipNumber());
         exitSlip.setExitDate(request.getExitDate());
         exitSlip.setDestinationWorkshop(request.getDestinationWorkshop());
         exitSlip.setReason(request.getReason());
@@ -44,105 +57,96 @@ public class ExitSlipServiceImpl implements ExitSlipService {
         exitSlip.setCreatedBy("SYSTEM"); 
         
         // Add items
+        List<StockReservationTable.Line> reservations = new ArrayList<>();
         for (ExitSlipItemRequest itemRequest : request.getItems()) {
-            Product product = productRepository.findById(itemRequest.getProductId())
+            ProductCatalogCache.CachedProduct product = productCatalogCache.get(itemRequest.getProductId())
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found: " + itemRequest.getProductId()));
             
             ExitSlipItem item = new ExitSlipItem();
             item.setExitSlip(exitSlip);
-            item.setProduct(product);
+            item.setProduct(product.toReference());
             item.setRequestedQuantity(itemRequest.getQuantity());
             item.setNote(itemRequest.getNote());
             
             exitSlip.getItems().add(item);
+            reservations.add(new StockReservationTable.Line(product.id(), product.name(),
+                product.currentStock() != null ? product.currentStock() : 0.0,
+                itemRequest.getQuantity().doubleValue()));
         }
         
         ExitSlip saved = exitSlipRepository.save(exitSlip);
+        // Checked against the cached stock minus other drafts; refused here rather than at validation
+        stockReservationTable.reserve(saved.getId(), reservations);
         return exitSlipMapper.toResponse(saved);
     }
 
     @Transactional
     public ExitSlipResponse validateExitSlip(Long id) {
-        ExitSlip exitSlip = exitSlipRepository.findById(id)
+        ExitSlip exitSlip = exitSlipRepository.findByIdForUpdate(id)
             .orElseThrow(() -> new ResourceNotFoundException("Exit slip not found: " + id));
         
         if (exitSlip.getStatus() != ExitSlipStatus.DRAFT) {
             throw new RuntimeException("Only DRAFT exit slips can be validated");
         }
         
-        // Consume stock in FIFO for each item
-        for (ExitSlipItem item : exitSlip.getItems()) {
-            Product product = item.getProduct();
-            double quantityNeeded = item.getRequestedQuantity().doubleValue();
-            
-            List<StockSlot> availableSlots = stockSlotRepository
-                .findByProductAndAvailableQuantityGreaterThanOrderByEntryDateAsc(product, 0.0);
-            
-            if (availableSlots.isEmpty()) {
-                throw new InsufficientStockException("Insufficient stock for product: " + product.getName());
-            }
-            
-            double totalAvailable = availableSlots.stream()
-                .mapToDouble(slot -> slot.getAvailableQuantity() != null ? slot.getAvailableQuantity() : 0.0)
-                .sum();
-            
-            if (totalAvailable < quantityNeeded) {
-                throw new InsufficientStockException(
-                    String.format("Insufficient stock for product: %s. Required: %.2f, Available: %.2f",
-                        product.getName(), quantityNeeded, totalAvailable)
-                );
-            }
-            
-            double remainingQuantity = quantityNeeded;
-            
-            // Consume from oldest slots first (FIFO)
-            for (StockSlot slot : availableSlots) {
-                if (remainingQuantity <= 0) {
-                    break;
-                }
-                
-                double availableInSlot = slot.getAvailableQuantity() != null ? slot.getAvailableQuantity() : 0.0;
-                double toConsume = Math.min(remainingQuantity, availableInSlot);
-                
-                // Create stock movement OUT
-                saveStockMovementOut(slot, product, toConsume);
-                
-                // Update slot available quantity
-                slot.setAvailableQuantity(availableInSlot - toConsume);
-                stockSlotRepository.save(slot);
-                
-                remainingQuantity -= toConsume;
-            }
-            
-            item.setActualQuantity(item.getRequestedQuantity());
-            
-            // Update product current stock
-            double newStock = product.getCurrentStock() - quantityNeeded;
-            product.setCurrentStock(newStock);
-            productRepository.save(product);
+        // Plan the lot consumption of the whole slip in memory, then write it in batches
+        StockConsumptionEngine.ConsumptionPlan plan = stockConsumptionEngine.plan(exitSlip.getItems());
+        stockConsumptionEngine.apply(plan);
+        stockEventStream.stockChanged(StockEventStream.SOURCE_EXIT_SLIP, exitSlip.getId(), plan.productDeltas());
+
+        // Item costs come in item order, at the price of the lots actually consumed
+        List<ExitSlipItem> items = exitSlip.getItems();
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).setActualQuantity(items.get(i).getRequestedQuantity());
+            items.get(i).setCost(plan.itemCosts().get(i));
         }
         
         exitSlip.setStatus(ExitSlipStatus.VALIDATED);
         exitSlip.setValidatedAt(LocalDateTime.now());
         exitSlip.setValidatedBy("SYSTEM");
+        exitCostRollupRepository.addValidated(List.of(exitSlip));
         
         ExitSlip validated = exitSlipRepository.save(exitSlip);
+        stockReservationTable.releaseAfterCommit(validated.getId());
+        outboxWriter.exitSlipValidated(validated, plan.productDeltas());
         return exitSlipMapper.toResponse(validated);
     }
     
-    private void saveStockMovementOut(StockSlot stockSlot, Product product, double quantity) {
-        StockMovement stockMovement = new StockMovement();
-        stockMovement.setType(StockMovement.Type.out);
-        stockMovement.setQuantity(-quantity);
-        stockMovement.setProduct(product);
-        stockMovement.setStockSlot(stockSlot);
-        
-        stockMovementRepository.save(stockMovement);
+    // Read-only transaction: one consistent snapshot for the slip, its lots and the average costs, no row lock
+    @Transactional(readOnly = true)
+    public AllocationPreviewResponse previewAllocation(Long id) {
+        // Taken before the first read, so a change committed after the snapshot always invalidates the entry
+        long changeStamp = productCatalogCache.currentChangeStamp();
+        ExitSlip exitSlip = exitSlipRepository.findById(id)
+            .orElseThrow(() -> new ResourceNotFoundException("Exit slip not found: " + id));
+
+        if (exitSlip.getStatus() != ExitSlipStatus.DRAFT) {
+            throw new InvalidOperationException("Only DRAFT exit slips can be previewed");
+        }
+
+        AllocationPreviewResponse cached = allocationPreviewCache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+
+        StockConsumptionEngine.Preview preview = stockConsumptionEngine.preview(exitSlip.getItems());
+        AllocationPreviewResponse response = toPreviewResponse(exitSlip, preview);
+        Set<Long> productIds = new TreeSet<>();
+        for (ExitSlipItem item : exitSlip.getItems()) {
+            productIds.add(item.getProduct().getId());
+        }
+        allocationPreviewCache.put(id, changeStamp, productIds, response);
+        return response;
     }
-    
+
+    // Not one transaction: the validator commits chunk by chunk
+    public BatchValidationResponse validateExitSlips(List<Long> slipIds) {
+        return exitSlipBatchValidator.validate(slipIds);
+    }
+
     @Transactional
     public ExitSlipResponse cancelExitSlip(Long id) {
-        ExitSlip exitSlip = exitSlipRepository.findById(id)
+        ExitSlip exitSlip = exitSlipRepository.findByIdForUpdate(id)
             .orElseThrow(() -> new ResourceNotFoundException("Exit slip not found: " + id));
         
         if (exitSlip.getStatus() == ExitSlipStatus.CANCELLED) {
@@ -158,6 +162,8 @@ public class ExitSlipServiceImpl implements ExitSlipService {
         exitSlip.setCancelledBy("SYSTEM"); 
         
         ExitSlip cancelled = exitSlipRepository.save(exitSlip);
+        stockReservationTable.releaseAfterCommit(cancelled.getId());
+        outboxWriter.exitSlipCancelled(cancelled);
         return exitSlipMapper.toResponse(cancelled);
     }
     
@@ -179,26 +185,40 @@ public class ExitSlipServiceImpl implements ExitSlipService {
         return exitSlipMapper.toResponseList(exitSlipRepository.findByDestinationWorkshop(workshop));
     }
 
-    private String generateSlipNumber() {
-        String prefix = "BS";
-        String date = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        long count = exitSlipRepository.count() + 1;
-        return String.format("%s-%s-%04d", prefix, date, count);
+    private static AllocationPreviewResponse toPreviewResponse(ExitSlip exitSlip, StockConsumptionEngine.Preview preview) {
+        AllocationPreviewResponse.AllocationPreviewResponseBuilder response = AllocationPreviewResponse.builder()
+            .exitSlipId(exitSlip.getId())
+            .slipNumber(exitSlip.getSlipNumber())
+            .computedAt(LocalDateTime.now());
+        if (preview.plan() == null) {
+            return response.feasible(false).error(preview.failure()).lots(List.of()).build();
+        }
+
+        // Two lines of the same product may draw on the same lot: one row per lot
+        Map<Long, AllocationPreviewResponse.Lot> lots = new LinkedHashMap<>();
+        for (SlotDebit debit : preview.plan().debits()) {
+            StockSlot slot = preview.slotsById().get(debit.slotId());
+            double unitCost = debit.unitCost();
+            AllocationPreviewResponse.Lot lot = lots.computeIfAbsent(debit.slotId(), slotId ->
+                new AllocationPreviewResponse.Lot(debit.productId(), slot.getProduct().getName(), slotId,
+                    slot.getLotNumber(), slot.getEntryDate(), slot.getExpiryDate(), 0.0, unitCost, BigDecimal.ZERO));
+            lot.setQuantity(lot.getQuantity() + debit.quantity());
+            lot.setCost(lot.getCost().add(StockConsumptionEngine.cost(debit.quantity(), unitCost)));
+        }
+
+        return response.feasible(true)
+            .totalQuantity(lots.values().stream().mapToDouble(AllocationPreviewResponse.Lot::getQuantity).sum())
+            .totalCost(lots.values().stream().map(AllocationPreviewResponse.Lot::getCost)
+                .reduce(BigDecimal.ZERO, BigDecimal::add))
+            .lots(new ArrayList<>(lots.values()))
+            .build();
     }
 
+    // Read from the running valuation kept by receipts and consumption, not recomputed from the slots
     public double calculateStockValue(Long productId) {
-        Product product = productRepository.findById(productId)
+        productRepository.findById(productId)
             .orElseThrow(() -> new ResourceNotFoundException("Product not found: " + productId));
 
-        List<StockSlot> stockSlots = stockSlotRepository
-            .findByProductAndAvailableQuantityGreaterThanOrderByEntryDateAsc(product, 0.0);
-
-        return stockSlots.stream()
-            .mapToDouble(slot -> {
-                double availableQty = slot.getAvailableQuantity() != null ? slot.getAvailableQuantity() : 0.0;
-                double price = slot.getUnitPrice() != null ? slot.getUnitPrice() : 0.0;
-                return availableQty * price;
-            })
-            .sum();
+        return stockValuationRepository.productValue(productId).doubleValue();
     }
 }
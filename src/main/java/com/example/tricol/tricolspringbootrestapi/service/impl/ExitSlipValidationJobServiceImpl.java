@@ -0,0 +1,284 @@
+package com.example.tricol.tricolspringbootrestapi.service.impl;
+
+import com.example.tricol.tricolspringbootrestapi.dto.response.ValidationJobResponse;
+import com.example.tricol.tricolspringbootrestapi.enums.ExitSlipStatus;
+import com.example.tricol.tricolspringbootrestapi.enums.ValidationJobStatus;
+import com.example.tricol.tricolspringbootrestapi.exception.ConcurrentStockUpdateException;
+import com.example.tricol.tricolspringbootrestapi.exception.InvalidOperationException;
+import com.example.tricol.tricolspringbootrestapi.exception.ResourceNotFoundException;
+import com.example.tricol.tricolspringbootrestapi.exception.ServiceOverloadedException;
+import com.example.tricol.tricolspringbootrestapi.model.ExitSlip;
+import com.example.tricol.tricolspringbootrestapi.model.ExitSlipItem;
+import com.example.tricol.tricolspringbootrestapi.repository.ExitSlipRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.ValidationJobJdbcRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.ValidationJobJdbcRepository.Claim;
+import com.example.tricol.tricolspringbootrestapi.service.ExitSlipService;
+import com.example.tricol.tricolspringbootrestapi.service.ExitSlipValidationJobService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.*;
+
+/**
+ * Asynchronous exit slip validation: a request only queues a job row, and a bounded pool of workers runs
+ * the validations from the exit_slip_validation_jobs table.
+ * - A job is claimed only once every earlier unfinished job sharing one of its products is done, so jobs
+ *   run in submission order per product, on any node.
+ * - The validation and the job's SUCCEEDED status commit together. Workers renew the lease of the jobs they
+ *   run, so only a node that dies mid-job leaves a RUNNING job whose lease expires: it goes back in the
+ *   queue, or ends as FAILED once it has used max-attempts.
+ * - Lock conflicts are retried up to max-attempts, business failures (stock, status) end the job as FAILED.
+ */
+@Service
+@Slf4j
+public class ExitSlipValidationJobServiceImpl implements ExitSlipValidationJobService {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final ExitSlipRepository exitSlipRepository;
+    private final ValidationJobJdbcRepository validationJobRepository;
+    private final ExitSlipService exitSlipService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService workers;
+    private final Semaphore workerSlots;
+    private final int maxPending;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration pollInterval;
+    private final Duration retention;
+    private final MeterRegistry meterRegistry;
+
+    private final Set<Claim> inFlight = ConcurrentHashMap.newKeySet();
+    private final Semaphore wakeUps = new Semaphore(0);
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    public ExitSlipValidationJobServiceImpl(ExitSlipRepository exitSlipRepository,
+                                            ValidationJobJdbcRepository validationJobRepository,
+                                            ExitSlipService exitSlipService,
+                                            PlatformTransactionManager transactionManager,
+                                            MeterRegistry meterRegistry,
+                                            @Value("${app.exit-slip.async.workers:4}") int workerCount,
+                                            @Value("${app.exit-slip.async.max-pending:10000}") int maxPending,
+                                            @Value("${app.exit-slip.async.max-attempts:3}") int maxAttempts,
+                                            @Value("${app.exit-slip.async.lease:5m}") Duration lease,
+                                            @Value("${app.exit-slip.async.poll-interval:1s}") Duration pollInterval,
+                                            @Value("${app.exit-slip.async.retention:7d}") Duration retention) {
+        this.exitSlipRepository = exitSlipRepository;
+        this.validationJobRepository = validationJobRepository;
+        this.exitSlipService = exitSlipService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "exit-slip-validation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.workerSlots = new Semaphore(workerCount);
+        this.maxPending = maxPending;
+        this.maxAttempts = maxAttempts;
+        this.lease = lease;
+        this.pollInterval = pollInterval;
+        this.retention = retention;
+    }
+
+    @Override
+    @Transactional
+    public ValidationJobResponse submitValidation(Long exitSlipId) {
+        // Serializes submissions for the same slip, so a retried request finds the job of the first one
+        ExitSlip exitSlip = exitSlipRepository.findByIdForUpdate(exitSlipId)
+            .orElseThrow(() -> new ResourceNotFoundException("Exit slip not found: " + exitSlipId));
+
+        Optional<ValidationJobResponse> existing = validationJobRepository.findUnfinishedBySlip(exitSlipId);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        if (exitSlip.getStatus() != ExitSlipStatus.DRAFT) {
+            throw new InvalidOperationException("Only DRAFT exit slips can be validated");
+        }
+        if (validationJobRepository.countPending() >= maxPending) {
+            throw new ServiceOverloadedException("Too many exit slip validations queued, retry later");
+        }
+
+        Set<Long> productIds = new TreeSet<>();
+        for (ExitSlipItem item : exitSlip.getItems()) {
+            productIds.add(item.getProduct().getId());
+        }
+        long jobId = validationJobRepository.insert(exitSlipId, productIds);
+        afterCommit(this::wakeUp);
+        return validationJobRepository.findById(jobId).orElseThrow();
+    }
+
+    @Override
+    public ValidationJobResponse getJob(Long jobId) {
+        return validationJobRepository.findById(jobId)
+            .orElseThrow(() -> new ResourceNotFoundException("Validation job not found: " + jobId));
+    }
+
+    // Started once Liquibase has run and the context is up
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        dispatcher = new Thread(this::run, "exit-slip-validation-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        workers.shutdownNow();
+    }
+
+    public void wakeUp() {
+        if (wakeUps.availablePermits() == 0) {
+            wakeUps.release();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.exit-slip.async.lease-check-interval:30s}")
+    public void requeueExpiredLeases() {
+        int failed = validationJobRepository.failExpiredLeases(maxAttempts,
+                "Worker lease expired after " + maxAttempts + " attempts");
+        if (failed > 0) {
+            log.warn("Failed {} exit slip validation jobs whose worker lease expired on their last attempt", failed);
+        }
+        int requeued = validationJobRepository.requeueExpiredLeases();
+        if (requeued > 0) {
+            log.warn("Requeued {} exit slip validation jobs whose worker lease expired", requeued);
+            wakeUp();
+        }
+    }
+
+    // Well within the lease, so a long validation keeps its claim while this node is alive
+    @Scheduled(fixedDelayString = "${app.exit-slip.async.lease-renew-interval:1m}")
+    public void renewLeases() {
+        if (!inFlight.isEmpty()) {
+            validationJobRepository.renewLeases(List.copyOf(inFlight), lease);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.exit-slip.async.purge-interval:1h}")
+    public void purgeFinished() {
+        validationJobRepository.purgeFinishedBefore(LocalDateTime.now().minus(retention));
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                wakeUps.tryAcquire(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                wakeUps.drainPermits();
+                dispatch();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                log.warn("Could not claim exit slip validation jobs: {}", ex.getMessage());
+            }
+        }
+    }
+
+    // Claims no more jobs than there are idle workers; a worker that finishes wakes the loop up again
+    private void dispatch() throws InterruptedException {
+        while (running) {
+            int idle = workerSlots.availablePermits();
+            if (idle == 0) {
+                return;
+            }
+            List<Claim> claims = transactionTemplate.execute(status -> validationJobRepository.claim(idle, lease));
+            if (claims == null || claims.isEmpty()) {
+                return;
+            }
+            for (Claim claim : claims) {
+                workerSlots.acquire();
+                inFlight.add(claim);
+                workers.execute(() -> {
+                    try {
+                        runJob(claim);
+                    } finally {
+                        inFlight.remove(claim);
+                        workerSlots.release();
+                        wakeUp();
+                    }
+                });
+            }
+        }
+    }
+
+    private void runJob(Claim claim) {
+        long started = System.nanoTime();
+        String outcome;
+        try {
+            Boolean finished = transactionTemplate.execute(status -> {
+                exitSlipService.validateExitSlip(claim.exitSlipId());
+                if (!validationJobRepository.finish(claim, ValidationJobStatus.SUCCEEDED, null)) {
+                    // The lease expired and the job was claimed again: the new claim owns the validation
+                    status.setRollbackOnly();
+                    return false;
+                }
+                return true;
+            });
+            outcome = Boolean.TRUE.equals(finished) ? "succeeded" : "superseded";
+        } catch (TransientDataAccessException | ConcurrentStockUpdateException ex) {
+            if (claim.attempt() < maxAttempts) {
+                log.debug("Exit slip validation job {} hit a lock conflict, requeued: {}", claim.jobId(), ex.getMessage());
+                validationJobRepository.requeue(claim);
+                outcome = "retried";
+            } else {
+                fail(claim, ex);
+                outcome = "failed";
+            }
+        } catch (RuntimeException ex) {
+            fail(claim, ex);
+            outcome = "failed";
+        }
+        Timer.builder("exit.slip.validation.jobs")
+            .description("Asynchronous exit slip validations, by outcome")
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    private void fail(Claim claim, RuntimeException ex) {
+        String error = ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName();
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        validationJobRepository.finish(claim, ValidationJobStatus.FAILED, error);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
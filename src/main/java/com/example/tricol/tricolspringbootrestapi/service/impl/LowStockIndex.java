@@ -0,0 +1,103 @@
+package com.example.tricol.tricolspringbootrestapi.service.impl;
+
+import com.example.tricol.tricolspringbootrestapi.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ids of the products whose current stock is below their reorder point, sorted by id.
+ * Loaded once at startup, then refreshed for the products touched by every committed stock or
+ * catalog write, on this node or (through the catalog_changes poll) on another one.
+ * Pages are read either after a last seen id (a seek in the skip list) or by offset, from a sorted array
+ * rebuilt on the first offset read after a change; neither walks past the skipped entries.
+ */
+@Component
+@RequiredArgsConstructor
+public class LowStockIndex {
+
+    private final ProductRepository productRepository;
+
+    private final NavigableSet<Long> lowStockIds = new ConcurrentSkipListSet<>();
+    private final AtomicInteger count = new AtomicInteger();
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot = new Snapshot(0, new long[0]);
+    private volatile boolean loaded;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        productRepository.findLowStockIds().forEach(this::add);
+        loaded = true;
+    }
+
+    // Must run after commit, so the query sees the new stock levels
+    public void refresh(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        Set<Long> low = new HashSet<>(productRepository.findLowStockIdsAmong(productIds));
+        for (Long productId : productIds) {
+            if (low.contains(productId)) {
+                add(productId);
+            } else if (lowStockIds.remove(productId)) {
+                count.decrementAndGet();
+                version.incrementAndGet();
+            }
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int size() {
+        return count.get();
+    }
+
+    public List<Long> page(long offset, int size) {
+        long[] ids = sortedIds();
+        int from = (int) Math.min(offset, ids.length);
+        int to = (int) Math.min(from + (long) size, ids.length);
+        List<Long> page = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            page.add(ids[i]);
+        }
+        return page;
+    }
+
+    public List<Long> pageAfter(long afterId, int size) {
+        List<Long> ids = new ArrayList<>();
+        Iterator<Long> iterator = lowStockIds.tailSet(afterId, false).iterator();
+        while (ids.size() < size && iterator.hasNext()) {
+            ids.add(iterator.next());
+        }
+        return ids;
+    }
+
+    // The version is read before copying: a change racing with the copy leaves it outdated, not current
+    private long[] sortedIds() {
+        Snapshot current = snapshot;
+        long expected = version.get();
+        if (current.version() != expected) {
+            current = new Snapshot(expected, lowStockIds.stream().mapToLong(Long::longValue).toArray());
+            snapshot = current;
+        }
+        return current.ids();
+    }
+
+    private void add(Long productId) {
+        if (lowStockIds.add(productId)) {
+            count.incrementAndGet();
+            version.incrementAndGet();
+        }
+    }
+
+    private record Snapshot(long version, long[] ids) {
+    }
+}
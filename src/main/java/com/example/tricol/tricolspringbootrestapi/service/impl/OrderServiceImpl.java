@@ -12,7 +12,9 @@ import com.example.tricol.tricolspringbootrestapi.mapper.OrderItemMapper;
 import com.example.tricol.tricolspringbootrestapi.mapper.OrderMapper;
 import com.example.tricol.tricolspringbootrestapi.model.*;
 import com.example.tricol.tricolspringbootrestapi.repository.*;
+import com.example.tricol.tricolspringbootrestapi.service.DocumentNumberService;
 import com.example.tricol.tricolspringbootrestapi.service.OrderService;
+import com.example.tricol.tricolspringbootrestapi.service.outbox.OutboxWriter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,6 +23,8 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Service
 @RequiredArgsConstructor
@@ -30,8 +34,13 @@ public class OrderServiceImpl implements OrderService {
     private final OrderRepository orderRepository;
     private final StockSlotRepository stockSlotRepository;
     private final StockMovementRepository stockMovementRepository;
+    private final StockLedgerJdbcRepository stockLedgerJdbcRepository;
     private final OrderMapper orderMapper;
     private final OrderItemMapper orderItemMapper;
+    private final DocumentNumberService documentNumberService;
+    private final ProductCatalogCache productCatalogCache;
+    private final StockEventStream stockEventStream;
+    private final OutboxWriter outboxWriter;
 
     @Override
     public OrderResponse createOrder(CreateOrderRequest request) {
@@ -51,15 +60,16 @@ public class OrderServiceImpl implements OrderService {
         double totalAmount = 0;
 
         for (CreateOrderItemRequest itemReq : request.getItems()) {
-            Product product = productRepository.findById(itemReq.getProductId())
+            ProductCatalogCache.CachedProduct product = productCatalogCache.get(itemReq.getProductId())
                     .orElseThrow(() -> new ResourceNotFoundException("Product with id " + itemReq.getProductId() + " not found"));
 
             OrderItem item = new OrderItem();
             item.setOrder(order);
-            item.setProduct(product);
+            item.setProduct(product.toReference());
             item.setQuantity(itemReq.getQuantity());
-            item.setUnitPrice(product.getUnitPrice());
-            item.setTotal(product.getUnitPrice() * itemReq.getQuantity());
+            item.setUnitPrice(product.unitPrice());
+            item.setTotal(product.unitPrice() * itemReq.getQuantity());
+            item.setExpiryDate(itemReq.getExpiryDate());
 
             totalAmount += item.getTotal();
 
@@ -117,57 +127,58 @@ public class OrderServiceImpl implements OrderService {
 
         // create one stockslot per orderitem (per product)
         List<StockSlot> stockSlots = new ArrayList<>();
+        Map<Long, Double> receivedByProduct = new TreeMap<>();
+        List<String> lotNumbers = documentNumberService.nextLotNumbers(order.getItems().size());
 
-        for (OrderItem orderItem : order.getItems()) {
+        for (int i = 0; i < order.getItems().size(); i++) {
+            OrderItem orderItem = order.getItems().get(i);
             StockSlot stockSlot = new StockSlot();
-            stockSlot.setLotNumber(generateLotNumber());
+            stockSlot.setLotNumber(lotNumbers.get(i));
             stockSlot.setOrder(order);
             stockSlot.setProduct(orderItem.getProduct());
             stockSlot.setQuantity(orderItem.getQuantity());
             stockSlot.setAvailableQuantity(orderItem.getQuantity());
             stockSlot.setUnitPrice(orderItem.getUnitPrice());
+            stockSlot.setExpiryDate(orderItem.getExpiryDate());
 
             stockSlots.add(stockSlot);
 
-            // update product current stock
-            Product product = orderItem.getProduct();
-            Double currentStock = product.getCurrentStock();
-            Double newStock = currentStock + orderItem.getQuantity();
-            product.setCurrentStock(newStock);
-
-            productRepository.save(product);
+            receivedByProduct.merge(orderItem.getProduct().getId(), orderItem.getQuantity(), Double::sum);
         }
 
-        // save all stock slots
+        // slots and movements are inserted as JDBC batches on flush (pooled ids)
         stockSlotRepository.saveAll(stockSlots);
         order.setStockSlot(stockSlots);
-
-        // save stock movements for each stock slot
-        for (StockSlot stockSlot : stockSlots) {
-            saveStockMovementIn(stockSlot);
-        }
+        stockMovementRepository.saveAll(stockSlots.stream().map(this::toStockMovementIn).toList());
+
+        // one relative stock update per product, in product id order like exit slip validation
+        stockLedgerJdbcRepository.adjustProductStock(receivedByProduct);
+        Long supplierId = order.getSupplier() != null ? order.getSupplier().getId() : null;
+        stockLedgerJdbcRepository.creditValuations(stockSlots.stream()
+                .map(slot -> new StockLedgerJdbcRepository.ValuationCredit(slot.getProduct().getId(), supplierId,
+                        slot.getQuantity(), slot.getUnitPrice() != null ? slot.getUnitPrice() : 0.0))
+                .toList());
+        productCatalogCache.markChanged(receivedByProduct.keySet());
+        stockEventStream.stockChanged(StockEventStream.SOURCE_ORDER_RECEIPT, order.getId(), receivedByProduct);
 
         // save updated order
         Order savedOrder = orderRepository.save(order);
+        outboxWriter.orderReceived(savedOrder, stockSlots);
 
         return orderMapper.toReceiveOrderResponse(savedOrder);
     }
 
-    private String generateLotNumber() {
-        long count = stockSlotRepository.count() + 1;
-        int year = java.time.Year.now().getValue();
-        return String.format("LOT-%d-%03d", year, count);
-    }
-
-    private void saveStockMovementIn(StockSlot stockSlot){
+    private StockMovement toStockMovementIn(StockSlot stockSlot){
         StockMovement stockMovement = new StockMovement();
         stockMovement.setType(StockMovement.Type.in);
         stockMovement.setQuantity(stockSlot.getQuantity());
+        double unitPrice = stockSlot.getUnitPrice() != null ? stockSlot.getUnitPrice() : 0.0;
+        stockMovement.setUnitCost(unitPrice);
+        stockMovement.setCost(StockConsumptionEngine.cost(stockSlot.getQuantity(), unitPrice));
         stockMovement.setProduct(stockSlot.getProduct());
         stockMovement.setStockSlot(stockSlot);
         stockMovement.setOrder(stockSlot.getOrder());
-
-        stockMovementRepository.save(stockMovement);
+        return stockMovement;
     }
 
 }
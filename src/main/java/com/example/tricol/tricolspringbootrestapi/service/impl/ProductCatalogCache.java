@@ -0,0 +1,217 @@
+package com.example.tricol.tricolspringbootrestapi.service.impl;
+
+import com.example.tricol.tricolspringbootrestapi.dto.request.ProductDTO;
+import com.example.tricol.tricolspringbootrestapi.model.Product;
+import com.example.tricol.tricolspringbootrestapi.repository.ProductRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-node cache of products by id, kept coherent across nodes without a broker:
+ * every product write (catalog edit or stock change) inserts a row in catalog_changes in the same
+ * transaction, and each node polls that table to evict what other nodes changed.
+ * A node whose poll keeps failing stops serving from the cache once max-staleness is exceeded,
+ * so a stale read is never older than that window.
+ * The same change feed keeps {@link LowStockIndex} up to date, and stamps each changed product so caches of
+ * values derived from its lots can tell they are out of date.
+ */
+@Component
+@Slf4j
+public class ProductCatalogCache {
+
+    static final String CACHE_NAME = "product-catalog";
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final LowStockIndex lowStockIndex;
+    private final Cache<Long, CachedProduct> cache;
+    private final Duration maxStaleness;
+    private final Duration changeLookback;
+
+    // Change rows already applied, kept for the lookback window so a late commit is applied exactly once
+    private final Set<Long> appliedChanges = new HashSet<>();
+    private volatile long lastPollNanos = System.nanoTime();
+    private final AtomicLong changeCounter = new AtomicLong();
+    private final Map<Long, Long> lastChangeStamps = new ConcurrentHashMap<>();
+    // Set when a poll fails: changes may have been missed, so every product counts as changed
+    private volatile long lastResetStamp;
+
+    public ProductCatalogCache(ProductRepository productRepository,
+                               JdbcTemplate jdbcTemplate,
+                               LowStockIndex lowStockIndex,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.catalog-cache.max-size:10000}") long maxSize,
+                               @Value("${app.catalog-cache.ttl:10m}") Duration ttl,
+                               @Value("${app.catalog-cache.max-staleness:5s}") Duration maxStaleness,
+                               @Value("${app.catalog-cache.change-lookback:60s}") Duration changeLookback) {
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.lowStockIndex = lowStockIndex;
+        this.maxStaleness = maxStaleness;
+        this.changeLookback = changeLookback;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public Optional<CachedProduct> get(Long id) {
+        if (System.nanoTime() - lastPollNanos > maxStaleness.toNanos()) {
+            return productRepository.findById(id).map(CachedProduct::of);
+        }
+        // An invalidation racing with this load waits for it and then removes the loaded value
+        return Optional.ofNullable(cache.get(id, key -> productRepository.findById(key).map(CachedProduct::of).orElse(null)));
+    }
+
+    /**
+     * Records that products changed in the current transaction: the change rows commit with it, and this
+     * node drops its own entries right away and again after commit.
+     */
+    public void markChanged(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = productIds.stream().map(id -> new Object[]{id}).toList();
+        jdbcTemplate.batchUpdate("INSERT INTO catalog_changes (product_id) VALUES (?)", rows);
+        cache.invalidateAll(productIds);
+        afterCommit(() -> {
+            cache.invalidateAll(productIds);
+            lowStockIndex.refresh(productIds);
+            stamp(productIds);
+        });
+    }
+
+    // Write-through for catalog edits made on this node
+    public void markChanged(Product product) {
+        markChanged(List.of(product.getId()));
+        CachedProduct snapshot = CachedProduct.of(product);
+        afterCommit(() -> cache.put(snapshot.id(), snapshot));
+    }
+
+    @Scheduled(fixedDelayString = "${app.catalog-cache.poll-interval:1s}")
+    public void pollChanges() {
+        try {
+            Set<Long> seen = new HashSet<>();
+            Set<Long> changedProducts = new HashSet<>();
+            jdbcTemplate.query("SELECT id, product_id FROM catalog_changes WHERE changed_at >= NOW(6) - INTERVAL ? SECOND",
+                    (RowCallbackHandler) rs -> {
+                        long changeId = rs.getLong(1);
+                        seen.add(changeId);
+                        if (!appliedChanges.contains(changeId)) {
+                            changedProducts.add(rs.getLong(2));
+                        }
+                    },
+                    changeLookback.toSeconds());
+            cache.invalidateAll(changedProducts);
+            lowStockIndex.refresh(changedProducts);
+            stamp(changedProducts);
+            appliedChanges.retainAll(seen);
+            appliedChanges.addAll(seen);
+            lastPollNanos = System.nanoTime();
+        } catch (DataAccessException ex) {
+            log.warn("Could not poll catalog changes, product cache is bypassed after {}: {}", maxStaleness, ex.getMessage());
+            cache.invalidateAll();
+            lastResetStamp = changeCounter.incrementAndGet();
+        }
+    }
+
+    /**
+     * To be read before loading data derived from products; changedSince() then tells whether any of them
+     * changed after that point, as seen by this node.
+     */
+    public long currentChangeStamp() {
+        return changeCounter.get();
+    }
+
+    public boolean changedSince(Collection<Long> productIds, long stamp) {
+        if (lastResetStamp > stamp) {
+            return true;
+        }
+        for (Long productId : productIds) {
+            if (lastChangeStamps.getOrDefault(productId, 0L) > stamp) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Scheduled(fixedDelayString = "${app.catalog-cache.purge-interval:1h}")
+    public void purgeChanges() {
+        jdbcTemplate.update("DELETE FROM catalog_changes WHERE changed_at < ?", LocalDateTime.now().minusDays(1));
+    }
+
+    private void stamp(Collection<Long> productIds) {
+        if (!productIds.isEmpty()) {
+            long stamp = changeCounter.incrementAndGet();
+            productIds.forEach(productId -> lastChangeStamps.put(productId, stamp));
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Immutable copy of a product row, safe to share between requests.
+     */
+    public record CachedProduct(Long id, String reference, String name, String description, Double unitPrice,
+                                String category, String measureUnit, Double reorderPoint, Double currentStock) {
+
+        static CachedProduct of(Product product) {
+            return new CachedProduct(product.getId(), product.getReference(), product.getName(),
+                    product.getDescription(), product.getUnitPrice(), product.getCategory(),
+                    product.getMeasureUnit(), product.getReorderPoint(), product.getCurrentStock());
+        }
+
+        public ProductDTO toDTO() {
+            return new ProductDTO(id, reference, name, description, unitPrice, category, measureUnit,
+                    reorderPoint, currentStock);
+        }
+
+        /**
+         * Detached Product carrying this snapshot, to set as a many-to-one target without loading the row:
+         * Hibernate only writes its id as the foreign key, and response mappers read the copied fields.
+         */
+        public Product toReference() {
+            Product product = new Product();
+            product.setId(id);
+            product.setReference(reference);
+            product.setName(name);
+            product.setDescription(description);
+            product.setUnitPrice(unitPrice);
+            product.setCategory(category);
+            product.setMeasureUnit(measureUnit);
+            product.setReorderPoint(reorderPoint);
+            product.setCurrentStock(currentStock);
+            return product;
+        }
+    }
+}
@@ -8,9 +8,14 @@ import com.example.tricol.tricolspringbootrestapi.model.Product;
 import com.example.tricol.tricolspringbootrestapi.repository.ProductRepository;
 import com.example.tricol.tricolspringbootrestapi.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Optional;
 
 @Service
 public class ProductServiceImpl implements ProductService {
@@ -18,20 +23,27 @@ public class ProductServiceImpl implements ProductService {
     private ProductRepository productRepository;
     @Autowired
     private ProductMapper productMapper;
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+    @Autowired
+    private LowStockIndex lowStockIndex;
 
     @Override
+    @Transactional
     public Product createProduct(ProductDTO ProductDTO){
         // Check for duplicate reference
         if (productRepository.findByReference(ProductDTO.getReference()).isPresent()) {
             throw new DuplicateResourceException("Product with reference '" + ProductDTO.getReference() + "' already exists");
         }
-        return productRepository.save(productMapper.toEntity(ProductDTO));
+        Product saved = productRepository.save(productMapper.toEntity(ProductDTO));
+        productCatalogCache.markChanged(saved);
+        return saved;
     }
 
     @Override
     public ProductDTO getProductById(Long id){
-        return productRepository.findById(id)
-                .map(product -> productMapper.toDTO(product))
+        return productCatalogCache.get(id)
+                .map(ProductCatalogCache.CachedProduct::toDTO)
                 .orElseThrow(() -> new ResourceNotFoundException("Product with id " + id + " not found"));
     }
 
@@ -41,39 +53,58 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
+    @Transactional
     public ProductDTO updateProduct(Long id, ProductDTO ProductDTO){
         Product existingProduct = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product with id " + id + " not found"));
 
         productMapper.updateProductFromDTO(ProductDTO, existingProduct);
-        return productMapper.toDTO(productRepository.save(existingProduct));
+        Product saved = productRepository.save(existingProduct);
+        productCatalogCache.markChanged(saved);
+        return productMapper.toDTO(saved);
     }
 
     @Override
+    @Transactional
     public void deleteProduct(Long id){
         Product existingProduct = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product with id " + id + " not found"));
 
         productRepository.delete(existingProduct);
+        productCatalogCache.markChanged(List.of(id));
     }
 
     @Override
     public Double getProductStock(Long id){
-        return productRepository.findById(id)
-                .map(Product::getCurrentStock)
+        return productCatalogCache.get(id)
+                .map(ProductCatalogCache.CachedProduct::currentStock)
                 .orElse(0.0);
     }
 
     @Override
-    public List<ProductDTO> getLowStockProducts(){
-        List<Product> products = productRepository.findAll();
-        return products.stream().filter(product -> {
-            try{
-                return product.getCurrentStock() < product.getReorderPoint();
-            } catch (NumberFormatException  e){
-                return false; // skip invalid reorderPoint
-            }
-        }).map(productMapper::toDTO).toList();
+    public Page<ProductDTO> getLowStockProducts(Pageable pageable){
+        // Until the in-memory index is loaded, fall back to the indexed low_stock query
+        if (!lowStockIndex.isLoaded()) {
+            return productRepository.findLowStock(pageable).map(productMapper::toDTO);
+        }
+        List<ProductDTO> content = lowStockIndex.page(pageable.getOffset(), pageable.getPageSize()).stream()
+                .map(productCatalogCache::get)
+                .flatMap(Optional::stream)
+                .map(ProductCatalogCache.CachedProduct::toDTO)
+                .toList();
+        return new PageImpl<>(content, pageable, lowStockIndex.size());
+    }
+
+    @Override
+    public List<ProductDTO> getLowStockProductsAfter(long afterId, int size){
+        if (!lowStockIndex.isLoaded()) {
+            return productRepository.findLowStockAfter(afterId, size).stream().map(productMapper::toDTO).toList();
+        }
+        return lowStockIndex.pageAfter(afterId, size).stream()
+                .map(productCatalogCache::get)
+                .flatMap(Optional::stream)
+                .map(ProductCatalogCache.CachedProduct::toDTO)
+                .toList();
     }
 
 }
@@ -0,0 +1,130 @@
+package com.example.tricol.tricolspringbootrestapi.service.impl;
+
+import com.example.tricol.tricolspringbootrestapi.repository.StockHistoryJdbcRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Builds the stock checkpoints used by as-of queries. Each checkpoint is the previous one plus the movements
+ * since, computed product chunk by product chunk on a small pool, one short transaction per chunk.
+ * - The checkpoint time lags behind now, so movements still in flight when the job runs are not missed.
+ * - The run row is the guard against two nodes taking the same checkpoint, and stays RUNNING
+ *   (ignored by queries) until every chunk is written.
+ */
+@Component
+@Slf4j
+public class StockCheckpointJob {
+
+    private final StockHistoryJdbcRepository stockHistoryRepository;
+    private final StockHistoryServiceImpl stockHistoryService;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int batchSize;
+    private final Duration safetyLag;
+    private final ExecutorService coordinator;
+    private final ExecutorService workers;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public StockCheckpointJob(StockHistoryJdbcRepository stockHistoryRepository,
+                              StockHistoryServiceImpl stockHistoryService,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.stock-history.chunk-size:500}") int chunkSize,
+                              @Value("${app.stock-history.parallelism:4}") int parallelism,
+                              @Value("${app.stock-history.safety-lag:5m}") Duration safetyLag,
+                              @Value("${app.stock.jdbc-batch-size:100}") int batchSize) {
+        this.stockHistoryRepository = stockHistoryRepository;
+        this.stockHistoryService = stockHistoryService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.batchSize = batchSize;
+        this.safetyLag = safetyLag;
+        this.coordinator = Executors.newSingleThreadExecutor(daemon("stock-checkpoint"));
+        this.workers = Executors.newFixedThreadPool(parallelism, daemon("stock-checkpoint-worker"));
+    }
+
+    @PreDestroy
+    public void stop() {
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    // The scheduler thread is shared with the cache polls, the job itself runs on its own threads
+    @Scheduled(cron = "${app.stock-history.checkpoint-cron:0 30 2 * * *}")
+    public void scheduleCheckpoint() {
+        if (running.compareAndSet(false, true)) {
+            coordinator.execute(() -> {
+                try {
+                    createCheckpoint();
+                } finally {
+                    running.set(false);
+                }
+            });
+        }
+    }
+
+    public void createCheckpoint() {
+        LocalDateTime checkpointAt = LocalDateTime.now().minus(safetyLag).truncatedTo(ChronoUnit.MINUTES);
+        try {
+            stockHistoryRepository.insertRun(checkpointAt);
+        } catch (DuplicateKeyException ex) {
+            log.info("Stock checkpoint {} already taken by another node", checkpointAt);
+            return;
+        }
+
+        long started = System.nanoTime();
+        List<Long> productIds = stockHistoryRepository.findAllProductIds();
+        List<Future<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < productIds.size(); from += chunkSize) {
+            List<Long> chunk = productIds.subList(from, Math.min(from + chunkSize, productIds.size()));
+            chunks.add(workers.submit(() -> writeChunk(chunk, checkpointAt)));
+        }
+        try {
+            int lots = 0;
+            for (Future<Integer> chunk : chunks) {
+                lots += chunk.get();
+            }
+            stockHistoryRepository.completeRun(checkpointAt);
+            log.info("Stock checkpoint {} written: {} products, {} lots in {} ms", checkpointAt, productIds.size(),
+                    lots, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (InterruptedException | ExecutionException | RuntimeException ex) {
+            if (ex instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            chunks.forEach(chunk -> chunk.cancel(true));
+            log.warn("Stock checkpoint {} failed, discarding it: {}", checkpointAt, ex.getMessage());
+            stockHistoryRepository.deleteRun(checkpointAt);
+        }
+    }
+
+    private int writeChunk(List<Long> productIds, LocalDateTime checkpointAt) {
+        Integer written = transactionTemplate.execute(status -> {
+            List<StockHistoryJdbcRepository.LotQuantity> lots =
+                    stockHistoryService.lotsAsOf(productIds, checkpointAt).lots();
+            stockHistoryRepository.insertCheckpointLots(checkpointAt, lots, batchSize);
+            return lots.size();
+        });
+        return written != null ? written : 0;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
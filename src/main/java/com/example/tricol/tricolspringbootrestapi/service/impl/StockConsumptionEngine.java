@@ -0,0 +1,280 @@
+package com.example.tricol.tricolspringbootrestapi.service.impl;
+
+import com.example.tricol.tricolspringbootrestapi.exception.InsufficientStockException;
+import com.example.tricol.tricolspringbootrestapi.model.ExitSlipItem;
+import com.example.tricol.tricolspringbootrestapi.model.Product;
+import com.example.tricol.tricolspringbootrestapi.model.StockMovement;
+import com.example.tricol.tricolspringbootrestapi.model.StockSlot;
+import com.example.tricol.tricolspringbootrestapi.repository.ProductRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.StockLedgerJdbcRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.StockLedgerJdbcRepository.SlotDebit;
+import com.example.tricol.tricolspringbootrestapi.repository.StockMovementRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.StockSlotRepository;
+import com.example.tricol.tricolspringbootrestapi.service.allocation.AllocationStrategy;
+import com.example.tricol.tricolspringbootrestapi.service.allocation.AllocationStrategyResolver;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+
+/**
+ * Lot consumption for exit slips, done in two phases:
+ * plan() locks the products of the slip in id order, loads their candidate slots with one locking query
+ * and allocates in memory from a priority queue per product, in the order of the {@link AllocationStrategy}
+ * of its category (FIFO by default); planBatch() does the same for many slips over one load of their lots.
+ * apply() writes slot debits, valuation debits and product stock deltas as JDBC batches and the OUT movements
+ * as one batched saveAll.
+ * Both must run in the same transaction so the row locks cover the writes.
+ */
+@Component
+@RequiredArgsConstructor
+public class StockConsumptionEngine {
+
+    private final ProductRepository productRepository;
+    private final StockSlotRepository stockSlotRepository;
+    private final StockLedgerJdbcRepository stockLedgerJdbcRepository;
+    private final StockMovementRepository stockMovementRepository;
+    private final ProductCatalogCache productCatalogCache;
+    private final AllocationStrategyResolver allocationStrategyResolver;
+
+    public ConsumptionPlan plan(List<ExitSlipItem> items) {
+        return loadLots(items, true).allocate(items);
+    }
+
+    /**
+     * Dry run of plan(): the lots are read from the transaction snapshot without any row lock, and nothing
+     * is written. Run it in a read-only transaction so every read sees the same snapshot.
+     */
+    public Preview preview(List<ExitSlipItem> items) {
+        Lots lots = loadLots(items, false);
+        try {
+            return new Preview(lots.allocate(items), lots.slotsById, null);
+        } catch (InsufficientStockException ex) {
+            return new Preview(null, lots.slotsById, ex.getMessage());
+        }
+    }
+
+    /**
+     * Plans several slips against one load of their lots: each product's queue is drained slip after slip,
+     * in the given order. A slip that cannot be served fails alone and takes nothing from the queues.
+     */
+    public BatchPlan planBatch(Map<Long, List<ExitSlipItem>> itemsBySlipId) {
+        List<ExitSlipItem> allItems = new ArrayList<>();
+        itemsBySlipId.values().forEach(allItems::addAll);
+        Lots lots = loadLots(allItems, true);
+
+        Map<Long, ConsumptionPlan> plans = new LinkedHashMap<>();
+        Map<Long, String> failures = new LinkedHashMap<>();
+        itemsBySlipId.forEach((slipId, items) -> {
+            try {
+                lots.check(items);
+                plans.put(slipId, lots.allocate(items));
+            } catch (InsufficientStockException ex) {
+                failures.put(slipId, ex.getMessage());
+            }
+        });
+        return new BatchPlan(plans, failures);
+    }
+
+    private Lots loadLots(List<ExitSlipItem> items, boolean lock) {
+        Set<Long> productIds = new TreeSet<>();
+        for (ExitSlipItem item : items) {
+            productIds.add(item.getProduct().getId());
+        }
+
+        // One priority queue of lots per product, ordered by the strategy of the product's category
+        Lots lots = new Lots();
+        Set<Long> averageCostProducts = new TreeSet<>();
+        if (!productIds.isEmpty()) {
+            List<StockSlot> slots;
+            if (lock) {
+                productRepository.lockAllByIdInOrder(productIds);
+                slots = stockSlotRepository.lockAvailableByProductIds(productIds);
+            } else {
+                slots = stockSlotRepository.findAvailableByProductIds(productIds);
+            }
+            for (StockSlot slot : slots) {
+                Product product = slot.getProduct();
+                AllocationStrategy strategy = allocationStrategyResolver.forCategory(product.getCategory());
+                double available = slot.getAvailableQuantity() != null ? slot.getAvailableQuantity() : 0.0;
+                lots.byProduct.computeIfAbsent(product.getId(), key -> new PriorityQueue<>(
+                        Comparator.comparing(SlotBalance::slot, strategy.pickOrder())))
+                    .add(new SlotBalance(slot, available));
+                lots.slotsById.put(slot.getId(), slot);
+                lots.availableByProduct.merge(product.getId(), available, Double::sum);
+                if (strategy.averageCost()) {
+                    averageCostProducts.add(product.getId());
+                }
+            }
+        }
+        // Products are locked (or the snapshot is fixed), so the averages cannot move before apply()
+        lots.averageCosts = averageCostProducts.isEmpty()
+            ? Map.of()
+            : stockLedgerJdbcRepository.findAverageCosts(averageCostProducts);
+        return lots;
+    }
+
+    public void apply(ConsumptionPlan plan) {
+        if (plan.debits().isEmpty()) {
+            return;
+        }
+        stockLedgerJdbcRepository.debitSlots(plan.debits());
+        stockLedgerJdbcRepository.debitValuations(plan.debits());
+        stockMovementRepository.saveAll(plan.debits().stream().map(this::toStockMovementOut).toList());
+        stockLedgerJdbcRepository.adjustProductStock(plan.productDeltas());
+        productCatalogCache.markChanged(plan.productDeltas().keySet());
+    }
+
+    // Slots and products were loaded by plan(), so the references resolve from the persistence context
+    private StockMovement toStockMovementOut(SlotDebit debit) {
+        StockMovement stockMovement = new StockMovement();
+        stockMovement.setType(StockMovement.Type.out);
+        stockMovement.setQuantity(-debit.quantity());
+        stockMovement.setUnitCost(debit.unitCost());
+        stockMovement.setCost(cost(debit.quantity(), debit.unitCost()).negate());
+        stockMovement.setProduct(productRepository.getReferenceById(debit.productId()));
+        stockMovement.setStockSlot(stockSlotRepository.getReferenceById(debit.slotId()));
+        return stockMovement;
+    }
+
+    private static final class Lots {
+        private final Map<Long, PriorityQueue<SlotBalance>> byProduct = new HashMap<>();
+        private final Map<Long, Double> availableByProduct = new HashMap<>();
+        private final Map<Long, StockSlot> slotsById = new HashMap<>();
+        private Map<Long, Double> averageCosts;
+
+        // Same checks as allocate(), without consuming: lets a batch skip a slip and leave the queues intact
+        private void check(List<ExitSlipItem> items) {
+            Map<Long, Double> needed = new HashMap<>();
+            for (ExitSlipItem item : items) {
+                Product product = item.getProduct();
+                double quantityNeeded = item.getRequestedQuantity().doubleValue();
+                PriorityQueue<SlotBalance> lots = byProduct.get(product.getId());
+                double alreadyNeeded = needed.getOrDefault(product.getId(), 0.0);
+                double totalAvailable = availableByProduct.getOrDefault(product.getId(), 0.0) - alreadyNeeded;
+                if (lots == null || lots.isEmpty() || totalAvailable <= 0) {
+                    throw new InsufficientStockException("Insufficient stock for product: " + product.getName());
+                }
+                if (totalAvailable < quantityNeeded) {
+                    throw new InsufficientStockException(
+                        String.format("Insufficient stock for product: %s. Required: %.2f, Available: %.2f",
+                            product.getName(), quantityNeeded, totalAvailable)
+                    );
+                }
+                needed.put(product.getId(), alreadyNeeded + quantityNeeded);
+            }
+        }
+
+        private ConsumptionPlan allocate(List<ExitSlipItem> items) {
+            List<SlotDebit> debits = new ArrayList<>();
+            Map<Long, Double> productDeltas = new TreeMap<>();
+            List<BigDecimal> itemCosts = new ArrayList<>();
+
+            for (ExitSlipItem item : items) {
+                Product product = item.getProduct();
+                double quantityNeeded = item.getRequestedQuantity().doubleValue();
+
+                // Lots drained by an earlier line or slip have left the queue
+                PriorityQueue<SlotBalance> lots = byProduct.get(product.getId());
+                if (lots == null || lots.isEmpty()) {
+                    throw new InsufficientStockException("Insufficient stock for product: " + product.getName());
+                }
+
+                double totalAvailable = availableByProduct.get(product.getId());
+                if (totalAvailable < quantityNeeded) {
+                    throw new InsufficientStockException(
+                        String.format("Insufficient stock for product: %s. Required: %.2f, Available: %.2f",
+                            product.getName(), quantityNeeded, totalAvailable)
+                    );
+                }
+
+                double remainingQuantity = quantityNeeded;
+                Double averageCost = averageCosts.get(product.getId());
+                BigDecimal itemCost = BigDecimal.ZERO;
+
+                // The head is only removed once drained: its position does not depend on the remaining quantity
+                while (remainingQuantity > 0 && !lots.isEmpty()) {
+                    SlotBalance head = lots.peek();
+                    double toConsume = Math.min(remainingQuantity, head.remaining);
+
+                    double unitCost = averageCost != null ? averageCost
+                        : head.slot.getUnitPrice() != null ? head.slot.getUnitPrice() : 0.0;
+                    debits.add(new SlotDebit(head.slot.getId(), product.getId(), toConsume, unitCost));
+                    itemCost = itemCost.add(cost(toConsume, unitCost));
+                    head.remaining -= toConsume;
+                    if (head.remaining <= 0) {
+                        lots.poll();
+                    }
+
+                    remainingQuantity -= toConsume;
+                }
+
+                availableByProduct.put(product.getId(), totalAvailable - quantityNeeded);
+                productDeltas.merge(product.getId(), -quantityNeeded, Double::sum);
+                itemCosts.add(itemCost);
+            }
+
+            return new ConsumptionPlan(debits, productDeltas, itemCosts);
+        }
+    }
+
+    /**
+     * Cost of a debit at the scale of the valuation ledger; an item's cost is the sum of its debits' costs,
+     * so item, movement and ledger amounts add up exactly.
+     */
+    public static BigDecimal cost(double quantity, double unitCost) {
+        return BigDecimal.valueOf(quantity).multiply(BigDecimal.valueOf(unitCost)).setScale(4, RoundingMode.HALF_UP);
+    }
+
+    private static final class SlotBalance {
+        private final StockSlot slot;
+        private double remaining;
+
+        private SlotBalance(StockSlot slot, double remaining) {
+            this.slot = slot;
+            this.remaining = remaining;
+        }
+
+        private StockSlot slot() {
+            return slot;
+        }
+    }
+
+    /**
+     * Slot debits in consumption order, the resulting stock delta per product (sorted by product id) and the
+     * cost of each planned item, in item order.
+     */
+    public record ConsumptionPlan(List<SlotDebit> debits, Map<Long, Double> productDeltas, List<BigDecimal> itemCosts) {
+
+        // Several plans written as one, so a batch of slips costs the same round trips as a single slip
+        public static ConsumptionPlan combine(Collection<ConsumptionPlan> plans) {
+            List<SlotDebit> debits = new ArrayList<>();
+            Map<Long, Double> productDeltas = new TreeMap<>();
+            List<BigDecimal> itemCosts = new ArrayList<>();
+            for (ConsumptionPlan plan : plans) {
+                debits.addAll(plan.debits());
+                plan.productDeltas().forEach((productId, delta) -> productDeltas.merge(productId, delta, Double::sum));
+                itemCosts.addAll(plan.itemCosts());
+            }
+            return new ConsumptionPlan(debits, productDeltas, itemCosts);
+        }
+
+        public BigDecimal totalCost() {
+            return itemCosts.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        }
+    }
+
+    /**
+     * Outcome of a dry run: the plan and the lots it reads from, or the reason the slip cannot be served.
+     */
+    public record Preview(ConsumptionPlan plan, Map<Long, StockSlot> slotsById, String failure) {
+    }
+
+    /**
+     * Plans of the slips that can be served and the reason for each one that cannot, both keyed by slip id.
+     */
+    public record BatchPlan(Map<Long, ConsumptionPlan> plans, Map<Long, String> failures) {
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.tricol.tricolspringbootrestapi.service.impl;
+
+import com.example.tricol.tricolspringbootrestapi.dto.response.StockLevelEvent;
+import com.example.tricol.tricolspringbootrestapi.enums.StockEventType;
+import com.example.tricol.tricolspringbootrestapi.exception.ServiceOverloadedException;
+import com.example.tricol.tricolspringbootrestapi.repository.StockLedgerJdbcRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.StockLedgerJdbcRepository.StockLevel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-sent stock level events for dashboards and workshop terminals.
+ * - Levels are read in the writing transaction and published only after it commits.
+ * - An idle subscriber holds no thread: the emitter is an async servlet response, and a small shared
+ *   pool writes to a subscriber only when it has something buffered.
+ * - Each subscriber has a bounded buffer. A subscriber that falls a full buffer behind is disconnected;
+ *   EventSource clients reconnect and re-read the current levels.
+ */
+@Component
+@Slf4j
+public class StockEventStream {
+
+    public static final String SOURCE_ORDER_RECEIPT = "ORDER_RECEIPT";
+    public static final String SOURCE_EXIT_SLIP = "EXIT_SLIP";
+    // Several slips validated together: the event carries no single source id
+    public static final String SOURCE_EXIT_SLIP_BATCH = "EXIT_SLIP_BATCH";
+
+    private final StockLedgerJdbcRepository stockLedgerJdbcRepository;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService dispatcher;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Counter droppedSubscribers;
+    private final int bufferCapacity;
+    private final int maxSubscribers;
+    private final long timeoutMillis;
+
+    public StockEventStream(StockLedgerJdbcRepository stockLedgerJdbcRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.stock-stream.dispatch-threads:4}") int dispatchThreads,
+                            @Value("${app.stock-stream.buffer-capacity:256}") int bufferCapacity,
+                            @Value("${app.stock-stream.max-subscribers:5000}") int maxSubscribers,
+                            @Value("${app.stock-stream.timeout:30m}") Duration timeout) {
+        this.stockLedgerJdbcRepository = stockLedgerJdbcRepository;
+        this.bufferCapacity = bufferCapacity;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = timeout.toMillis();
+        // One pending drain task per subscriber at most, so the queue is bounded by the subscriber count
+        this.dispatcher = Executors.newFixedThreadPool(dispatchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "stock-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.droppedSubscribers = Counter.builder("stock.stream.dropped")
+                .description("Subscribers disconnected because their buffer was full")
+                .register(meterRegistry);
+        meterRegistry.gauge("stock.stream.subscribers", subscribers, Set::size);
+    }
+
+    @PreDestroy
+    public void stop() {
+        dispatcher.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    /**
+     * Empty productIds / categories mean no filter on that dimension; when both are given an event
+     * matches either.
+     */
+    public SseEmitter subscribe(Set<Long> productIds, Set<String> categories) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new ServiceOverloadedException("Too many stock event subscribers, retry later");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, productIds, categories, new ArrayBlockingQueue<>(bufferCapacity));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(ex -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    /**
+     * Must be called in the transaction that changed the stock, after the stock updates: the levels are
+     * read now and the events go out once the transaction commits.
+     */
+    public void stockChanged(String source, Long sourceId, Map<Long, Double> deltasByProductId) {
+        if (subscribers.isEmpty() || deltasByProductId.isEmpty()) {
+            return;
+        }
+        LocalDateTime occurredAt = LocalDateTime.now();
+        List<StockLevelEvent> events = new ArrayList<>();
+        for (StockLevel level : stockLedgerJdbcRepository.findStockLevels(deltasByProductId.keySet())) {
+            double previousStock = level.currentStock() - deltasByProductId.get(level.productId());
+            events.add(StockLevelEvent.builder()
+                    .type(eventType(previousStock, level.currentStock(), level.reorderPoint()))
+                    .productId(level.productId())
+                    .reference(level.reference())
+                    .category(level.category())
+                    .previousStock(previousStock)
+                    .currentStock(level.currentStock())
+                    .reorderPoint(level.reorderPoint())
+                    .source(source)
+                    .sourceId(sourceId)
+                    .occurredAt(occurredAt)
+                    .build());
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(events);
+                }
+            });
+        } else {
+            publish(events);
+        }
+    }
+
+    // Comment lines keep proxies from closing idle streams and surface dead connections
+    @Scheduled(fixedDelayString = "${app.stock-stream.heartbeat-interval:15s}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeatDue = true;
+            schedule(subscriber);
+        }
+    }
+
+    private static StockEventType eventType(double previousStock, double currentStock, double reorderPoint) {
+        if (previousStock >= reorderPoint && currentStock < reorderPoint) {
+            return StockEventType.LOW_STOCK;
+        }
+        if (previousStock < reorderPoint && currentStock >= reorderPoint) {
+            return StockEventType.RESTOCKED;
+        }
+        return StockEventType.STOCK_CHANGED;
+    }
+
+    private void publish(List<StockLevelEvent> events) {
+        for (Subscriber subscriber : subscribers) {
+            boolean queued = false;
+            for (StockLevelEvent event : events) {
+                if (!subscriber.matches(event)) {
+                    continue;
+                }
+                if (!subscriber.buffer.offer(new Numbered(sequence.incrementAndGet(), event))) {
+                    drop(subscriber);
+                    queued = false;
+                    break;
+                }
+                queued = true;
+            }
+            if (queued) {
+                schedule(subscriber);
+            }
+        }
+    }
+
+    private void drop(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            droppedSubscribers.increment();
+            log.debug("Stock event subscriber fell {} events behind, disconnecting it", bufferCapacity);
+            subscriber.emitter.complete();
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                dispatcher.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException ex) {
+                subscriber.draining.set(false);
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            Numbered next;
+            while ((next = subscriber.buffer.poll()) != null) {
+                subscriber.emitter.send(SseEmitter.event()
+                        .id(Long.toString(next.id()))
+                        .name(next.event().getType().name())
+                        .data(next.event(), MediaType.APPLICATION_JSON));
+            }
+            if (subscriber.heartbeatDue) {
+                subscriber.heartbeatDue = false;
+                subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+            }
+        } catch (IOException | IllegalStateException ex) {
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(ex);
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // An event may have been queued after the last poll but before the flag was cleared
+        if (!subscriber.buffer.isEmpty()) {
+            schedule(subscriber);
+        }
+    }
+
+    private record Numbered(long id, StockLevelEvent event) {
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final Set<Long> productIds;
+        private final Set<String> categories;
+        private final BlockingQueue<Numbered> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean heartbeatDue;
+
+        private Subscriber(SseEmitter emitter, Set<Long> productIds, Set<String> categories,
+                           BlockingQueue<Numbered> buffer) {
+            this.emitter = emitter;
+            this.productIds = productIds != null ? Set.copyOf(productIds) : Set.of();
+            this.categories = categories != null ? Set.copyOf(categories) : Set.of();
+            this.buffer = buffer;
+        }
+
+        private boolean matches(StockLevelEvent event) {
+            if (productIds.isEmpty() && categories.isEmpty()) {
+                return true;
+            }
+            return productIds.contains(event.getProductId())
+                    || (event.getCategory() != null && categories.contains(event.getCategory()));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.tricol.tricolspringbootrestapi.service.impl;
+
+import com.example.tricol.tricolspringbootrestapi.dto.response.StockAsOfResponse;
+import com.example.tricol.tricolspringbootrestapi.exception.ResourceNotFoundException;
+import com.example.tricol.tricolspringbootrestapi.repository.ProductRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.StockHistoryJdbcRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.StockHistoryJdbcRepository.LotQuantity;
+import com.example.tricol.tricolspringbootrestapi.service.StockHistoryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Service
+@RequiredArgsConstructor
+public class StockHistoryServiceImpl implements StockHistoryService {
+
+    // Products per IN list when a category or a checkpoint chunk spans many products
+    private static final int PRODUCTS_PER_QUERY = 500;
+    private static final double EMPTY_LOT = 1e-9;
+
+    private final StockHistoryJdbcRepository stockHistoryRepository;
+    private final ProductRepository productRepository;
+
+    @Override
+    @Transactional(readOnly = true)
+    public StockAsOfResponse getProductStockAsOf(Long productId, LocalDateTime at) {
+        if (!productRepository.existsById(productId)) {
+            throw new ResourceNotFoundException("Product not found: " + productId);
+        }
+        LotsAsOf asOf = lotsAsOf(List.of(productId), at);
+        List<StockAsOfResponse.Line> lines = asOf.lots().stream()
+                .sorted(Comparator.comparingLong(LotQuantity::stockSlotId))
+                .map(lot -> new StockAsOfResponse.Line(lot.productId(), lot.stockSlotId(), lot.quantity(),
+                        lot.unitPrice(), lot.quantity() * lot.unitPrice()))
+                .toList();
+        return toResponse(productId, null, at, asOf.checkpointAt(), lines);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public StockAsOfResponse getCategoryStockAsOf(String category, LocalDateTime at) {
+        LotsAsOf asOf = lotsAsOf(stockHistoryRepository.findProductIdsByCategory(category), at);
+        Map<Long, double[]> byProduct = new TreeMap<>();
+        for (LotQuantity lot : asOf.lots()) {
+            double[] totals = byProduct.computeIfAbsent(lot.productId(), id -> new double[2]);
+            totals[0] += lot.quantity();
+            totals[1] += lot.quantity() * lot.unitPrice();
+        }
+        List<StockAsOfResponse.Line> lines = byProduct.entrySet().stream()
+                .map(entry -> new StockAsOfResponse.Line(entry.getKey(), null, entry.getValue()[0], null,
+                        entry.getValue()[1]))
+                .toList();
+        return toResponse(null, category, at, asOf.checkpointAt(), lines);
+    }
+
+    /**
+     * Lot quantities of the given products at the given time: the nearest completed checkpoint at or
+     * before it, plus the net movements since. Also used to build the next checkpoint.
+     */
+    public LotsAsOf lotsAsOf(List<Long> productIds, LocalDateTime at) {
+        LocalDateTime checkpointAt = stockHistoryRepository.findLatestCompletedCheckpoint(at).orElse(null);
+        List<LotQuantity> lots = new ArrayList<>();
+        for (int from = 0; from < productIds.size(); from += PRODUCTS_PER_QUERY) {
+            List<Long> chunk = productIds.subList(from, Math.min(from + PRODUCTS_PER_QUERY, productIds.size()));
+            Map<List<Long>, LotQuantity> merged = new LinkedHashMap<>();
+            if (checkpointAt != null) {
+                stockHistoryRepository.findCheckpointLots(checkpointAt, chunk).forEach(lot -> merge(merged, lot));
+            }
+            stockHistoryRepository.sumMovementsByLot(chunk, checkpointAt, at).forEach(lot -> merge(merged, lot));
+            merged.values().stream()
+                    .filter(lot -> Math.abs(lot.quantity()) > EMPTY_LOT)
+                    .forEach(lots::add);
+        }
+        return new LotsAsOf(checkpointAt, lots);
+    }
+
+    private static void merge(Map<List<Long>, LotQuantity> merged, LotQuantity lot) {
+        merged.merge(List.of(lot.productId(), lot.stockSlotId()), lot, (a, b) ->
+                new LotQuantity(a.productId(), a.stockSlotId(), a.quantity() + b.quantity(), a.unitPrice()));
+    }
+
+    private static StockAsOfResponse toResponse(Long productId, String category, LocalDateTime at,
+                                                LocalDateTime checkpointAt, List<StockAsOfResponse.Line> lines) {
+        return StockAsOfResponse.builder()
+                .productId(productId)
+                .category(category)
+                .at(at)
+                .checkpointAt(checkpointAt)
+                .quantity(lines.stream().mapToDouble(StockAsOfResponse.Line::getQuantity).sum())
+                .value(lines.stream().mapToDouble(StockAsOfResponse.Line::getValue).sum())
+                .lines(lines)
+                .build();
+    }
+
+    public record LotsAsOf(LocalDateTime checkpointAt, List<LotQuantity> lots) {
+    }
+}
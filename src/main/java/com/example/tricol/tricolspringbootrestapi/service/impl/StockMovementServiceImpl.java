@@ -1,17 +1,24 @@
 package com.example.tricol.tricolspringbootrestapi.service.impl;
 
 import com.example.tricol.tricolspringbootrestapi.dto.response.StockMovementResponse;
+import com.example.tricol.tricolspringbootrestapi.dto.response.StockMovementSliceResponse;
+import com.example.tricol.tricolspringbootrestapi.exception.BadRequestException;
 import com.example.tricol.tricolspringbootrestapi.mapper.StockMovementMapper;
 import com.example.tricol.tricolspringbootrestapi.model.StockMovement;
 import com.example.tricol.tricolspringbootrestapi.repository.StockMovementRepository;
 import com.example.tricol.tricolspringbootrestapi.service.StockMovementService;
+import jakarta.persistence.criteria.JoinType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -19,6 +26,8 @@ public class StockMovementServiceImpl implements StockMovementService {
     
     private final StockMovementRepository stockMovementRepository;
     private final StockMovementMapper stockMovementMapper;
+
+    private static final Sort KEYSET_SORT = Sort.by(Sort.Order.desc("date"), Sort.Order.desc("id"));
     
     @Override
     public Page<StockMovementResponse> searchMovements(
@@ -30,6 +39,60 @@ public class StockMovementServiceImpl implements StockMovementService {
             String lotNumber,
             Pageable pageable) {
         
+        Specification<StockMovement> spec = buildSpec(startDate, endDate, productId, reference, type, lotNumber);
+        
+        Page<StockMovement> movements = spec != null ? stockMovementRepository.findAll(spec, pageable) : stockMovementRepository.findAll(pageable);
+        return movements.map(stockMovementMapper::toResponse);
+    }
+
+    @Override
+    public StockMovementSliceResponse searchMovementsAfter(
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            Long productId,
+            String reference,
+            StockMovement.Type type,
+            String lotNumber,
+            String cursor,
+            int size) {
+
+        Specification<StockMovement> spec = addSpec(
+                buildSpec(startDate, endDate, productId, reference, type, lotNumber), fetchAssociations());
+
+        // Seek past the last row of the previous page instead of skipping an offset
+        if (cursor != null && !cursor.isBlank()) {
+            MovementCursor after = MovementCursor.decode(cursor);
+            spec = addSpec(spec, (root, query, cb) -> cb.or(
+                    cb.lessThan(root.get("date"), after.date()),
+                    cb.and(cb.equal(root.get("date"), after.date()), cb.lessThan(root.get("id"), after.id()))));
+        }
+
+        // One extra row tells whether a next page exists, without a count query
+        List<StockMovement> movements = stockMovementRepository.findBy(spec, query -> query
+                .sortBy(KEYSET_SORT)
+                .limit(size + 1)
+                .all());
+
+        boolean hasNext = movements.size() > size;
+        List<StockMovement> page = hasNext ? movements.subList(0, size) : movements;
+        String nextCursor = null;
+        if (hasNext) {
+            StockMovement last = page.get(page.size() - 1);
+            nextCursor = new MovementCursor(last.getDate(), last.getId()).encode();
+        }
+
+        return new StockMovementSliceResponse(
+                page.stream().map(stockMovementMapper::toResponse).toList(), page.size(), hasNext, nextCursor);
+    }
+
+    private Specification<StockMovement> buildSpec(
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            Long productId,
+            String reference,
+            StockMovement.Type type,
+            String lotNumber) {
+
         Specification<StockMovement> spec = null;
         
         if (startDate != null && endDate != null) {
@@ -55,12 +118,44 @@ public class StockMovementServiceImpl implements StockMovementService {
         if (lotNumber != null) {
             spec = addSpec(spec, (root, query, cb) -> cb.equal(root.get("stockSlot").get("lotNumber"), lotNumber));
         }
-        
-        Page<StockMovement> movements = spec != null ? stockMovementRepository.findAll(spec, pageable) : stockMovementRepository.findAll(pageable);
-        return movements.map(stockMovementMapper::toResponse);
+
+        return spec;
+    }
+
+    // Loads what the mapper reads in the same query; only safe where no count query is derived
+    private Specification<StockMovement> fetchAssociations() {
+        return (root, query, cb) -> {
+            root.fetch("product", JoinType.INNER);
+            root.fetch("stockSlot", JoinType.INNER);
+            root.fetch("order", JoinType.LEFT);
+            return null;
+        };
     }
     
     private Specification<StockMovement> addSpec(Specification<StockMovement> spec, Specification<StockMovement> newSpec) {
         return spec == null ? newSpec : spec.and(newSpec);
     }
+
+    /**
+     * Position of the last movement returned, sent to clients as an opaque base64url token.
+     */
+    private record MovementCursor(LocalDateTime date, Long id) {
+
+        String encode() {
+            String raw = date + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static MovementCursor decode(String token) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new MovementCursor(
+                        LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.parseLong(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new BadRequestException("Invalid cursor: " + token);
+            }
+        }
+    }
 }
@@ -0,0 +1,202 @@
+package com.example.tricol.tricolspringbootrestapi.service.impl;
+
+import com.example.tricol.tricolspringbootrestapi.enums.ExitSlipStatus;
+import com.example.tricol.tricolspringbootrestapi.exception.InsufficientStockException;
+import com.example.tricol.tricolspringbootrestapi.model.ExitSlip;
+import com.example.tricol.tricolspringbootrestapi.model.ExitSlipItem;
+import com.example.tricol.tricolspringbootrestapi.repository.ExitSlipRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Soft reservations held by DRAFT exit slips, in memory on each node.
+ * - Available to promise is the product's stock minus what drafts have reserved: one map lookup per product,
+ *   checked and taken atomically per product, with no database read.
+ * - A reservation is released when its slip is validated or cancelled, and expires after the ttl on a
+ *   timing wheel; an expired draft can still be validated if the stock is there.
+ * - Validation stays the authority: it locks and re-checks the lots. Drafts from before startup are
+ *   reloaded, but a draft created on another node since is not seen here.
+ */
+@Component
+@Slf4j
+public class StockReservationTable {
+
+    private static final double EPSILON = 1e-9;
+
+    private final ExitSlipRepository exitSlipRepository;
+    private final Clock clock;
+    private final Duration ttl;
+    private final TimingWheel<Long> expiries;
+    private final Map<Long, Double> reservedByProduct = new ConcurrentHashMap<>();
+    private final Map<Long, Map<Long, Double>> reservationsBySlip = new ConcurrentHashMap<>();
+
+    @Autowired
+    public StockReservationTable(ExitSlipRepository exitSlipRepository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.reservations.ttl:30m}") Duration ttl,
+                                 @Value("${app.reservations.tick:1s}") Duration tick,
+                                 @Value("${app.reservations.wheel-size:512}") int wheelSize) {
+        this(exitSlipRepository, Clock.systemDefaultZone(), ttl, tick, wheelSize);
+        meterRegistry.gauge("stock.reservations.active", reservationsBySlip, Map::size);
+    }
+
+    public StockReservationTable(ExitSlipRepository exitSlipRepository, Clock clock, Duration ttl,
+                                 Duration tick, int wheelSize) {
+        this.exitSlipRepository = exitSlipRepository;
+        this.clock = clock;
+        this.ttl = ttl;
+        this.expiries = new TimingWheel<>(tick, wheelSize, clock.millis());
+    }
+
+    public double availableToPromise(Long productId, double currentStock) {
+        return currentStock - reserved(productId);
+    }
+
+    public double reserved(Long productId) {
+        return reservedByProduct.getOrDefault(productId, 0.0);
+    }
+
+    /**
+     * Reserves every line of a slip or none of them. Lines of the same product are added up. If the current
+     * transaction rolls back, the reservation is released with it.
+     */
+    public void reserve(Long slipId, List<Line> lines) {
+        Map<Long, Line> byProduct = new TreeMap<>();
+        for (Line line : lines) {
+            byProduct.merge(line.productId(), line, Line::plus);
+        }
+
+        Map<Long, Double> taken = new TreeMap<>();
+        try {
+            for (Line line : byProduct.values()) {
+                reservedByProduct.compute(line.productId(), (productId, reserved) -> {
+                    double alreadyReserved = reserved != null ? reserved : 0.0;
+                    double available = line.currentStock() - alreadyReserved;
+                    if (available + EPSILON < line.quantity()) {
+                        throw new InsufficientStockException(
+                            String.format("Insufficient stock for product: %s. Requested: %.2f, Available to promise: %.2f",
+                                line.productName(), line.quantity(), Math.max(available, 0.0)));
+                    }
+                    return alreadyReserved + line.quantity();
+                });
+                taken.put(line.productId(), line.quantity());
+            }
+        } catch (InsufficientStockException ex) {
+            unreserve(taken);
+            throw ex;
+        }
+
+        hold(slipId, taken, clock.millis() + ttl.toMillis());
+        afterRollback(() -> release(slipId));
+    }
+
+    public void release(Long slipId) {
+        Map<Long, Double> quantities = reservationsBySlip.remove(slipId);
+        if (quantities != null) {
+            expiries.cancel(slipId);
+            unreserve(quantities);
+        }
+    }
+
+    // Validation releases once its stock debit is visible, so the quantity is never promised twice
+    public void releaseAfterCommit(Long slipId) {
+        afterCommit(() -> release(slipId));
+    }
+
+    public boolean isReserved(Long slipId) {
+        return reservationsBySlip.containsKey(slipId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.reservations.tick:1s}")
+    public void expireDue() {
+        List<Long> expired = expiries.advance(clock.millis());
+        for (Long slipId : expired) {
+            Map<Long, Double> quantities = reservationsBySlip.remove(slipId);
+            if (quantities != null) {
+                unreserve(quantities);
+            }
+        }
+        if (!expired.isEmpty()) {
+            log.debug("Released {} expired exit slip reservations", expired.size());
+        }
+    }
+
+    // Drafts still within the ttl get their reservation back, without a stock check: they already passed it
+    @EventListener(ApplicationReadyEvent.class)
+    public void reloadDrafts() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<ExitSlip> drafts = exitSlipRepository.findWithItemsByStatusCreatedSince(ExitSlipStatus.DRAFT, now.minus(ttl));
+        for (ExitSlip draft : drafts) {
+            Map<Long, Double> quantities = new TreeMap<>();
+            for (ExitSlipItem item : draft.getItems()) {
+                quantities.merge(item.getProduct().getId(), item.getRequestedQuantity().doubleValue(), Double::sum);
+            }
+            quantities.forEach((productId, quantity) -> reservedByProduct.merge(productId, quantity, Double::sum));
+            long remainingMillis = Duration.between(now, draft.getCreatedAt().plus(ttl)).toMillis();
+            hold(draft.getId(), quantities, clock.millis() + remainingMillis);
+        }
+        log.info("Reloaded reservations of {} draft exit slips", drafts.size());
+    }
+
+    private void hold(Long slipId, Map<Long, Double> quantities, long deadlineMillis) {
+        reservationsBySlip.put(slipId, quantities);
+        expiries.schedule(slipId, deadlineMillis);
+    }
+
+    private void unreserve(Map<Long, Double> quantities) {
+        quantities.forEach((productId, quantity) -> reservedByProduct.computeIfPresent(productId, (key, reserved) -> {
+            double left = reserved - quantity;
+            return left > EPSILON ? left : null;
+        }));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static void afterRollback(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        action.run();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Quantity requested for a product, with the stock the request was checked against.
+     */
+    public record Line(Long productId, String productName, double currentStock, double quantity) {
+
+        private Line plus(Line other) {
+            return new Line(productId, productName, currentStock, quantity + other.quantity);
+        }
+    }
+}
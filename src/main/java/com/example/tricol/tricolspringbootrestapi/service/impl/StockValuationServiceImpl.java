@@ -0,0 +1,94 @@
+package com.example.tricol.tricolspringbootrestapi.service.impl;
+
+import com.example.tricol.tricolspringbootrestapi.dto.response.StockValuationResponse;
+import com.example.tricol.tricolspringbootrestapi.dto.response.ValuationReconciliationResponse;
+import com.example.tricol.tricolspringbootrestapi.enums.AllocationMethod;
+import com.example.tricol.tricolspringbootrestapi.repository.StockValuationJdbcRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.StockValuationJdbcRepository.ProductTotals;
+import com.example.tricol.tricolspringbootrestapi.repository.StockValuationJdbcRepository.ValuationRow;
+import com.example.tricol.tricolspringbootrestapi.service.StockValuationService;
+import com.example.tricol.tricolspringbootrestapi.service.allocation.AllocationStrategyResolver;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+@Service
+public class StockValuationServiceImpl implements StockValuationService {
+
+    private static final ProductTotals NONE = new ProductTotals(null, 0, BigDecimal.ZERO);
+
+    private final StockValuationJdbcRepository stockValuationRepository;
+    private final AllocationStrategyResolver allocationStrategyResolver;
+    private final BigDecimal tolerance;
+
+    public StockValuationServiceImpl(StockValuationJdbcRepository stockValuationRepository,
+                                     AllocationStrategyResolver allocationStrategyResolver,
+                                     @Value("${app.valuation.reconciliation-tolerance:0.01}") BigDecimal tolerance) {
+        this.stockValuationRepository = stockValuationRepository;
+        this.allocationStrategyResolver = allocationStrategyResolver;
+        this.tolerance = tolerance;
+    }
+
+    @Override
+    public StockValuationResponse getTotalValuation() {
+        return toResponse("ALL", List.of());
+    }
+
+    @Override
+    public StockValuationResponse getValuationByCategory() {
+        return toResponse("CATEGORY", stockValuationRepository.byCategory());
+    }
+
+    @Override
+    public StockValuationResponse getValuationBySupplier() {
+        return toResponse("SUPPLIER", stockValuationRepository.bySupplier());
+    }
+
+    // Both sums read from the same snapshot, so a concurrent receipt or exit slip cannot show up as a mismatch
+    @Override
+    @Transactional(readOnly = true)
+    public ValuationReconciliationResponse reconcile() {
+        Map<Long, ProductTotals> ledger = stockValuationRepository.ledgerTotalsByProduct();
+        Map<Long, ProductTotals> slots = stockValuationRepository.slotTotalsByProduct();
+
+        Set<Long> productIds = new TreeSet<>(ledger.keySet());
+        productIds.addAll(slots.keySet());
+        List<ValuationReconciliationResponse.Mismatch> mismatches = new ArrayList<>();
+        for (Long productId : productIds) {
+            ProductTotals ledgerTotals = ledger.getOrDefault(productId, NONE);
+            ProductTotals slotTotals = slots.getOrDefault(productId, NONE);
+            String category = ledgerTotals.category() != null ? ledgerTotals.category() : slotTotals.category();
+            // Issued at the average cost, so the ledger value drifts from the remaining lots' prices by design
+            boolean averageCost = allocationStrategyResolver.forCategory(category).method() == AllocationMethod.WEIGHTED_AVERAGE;
+            BigDecimal difference = averageCost
+                    ? BigDecimal.valueOf(ledgerTotals.quantity() - slotTotals.quantity())
+                    : ledgerTotals.value().subtract(slotTotals.value());
+            if (difference.abs().compareTo(tolerance) > 0) {
+                mismatches.add(new ValuationReconciliationResponse.Mismatch(productId, averageCost ? "QUANTITY" : "VALUE",
+                        ledgerTotals.quantity(), slotTotals.quantity(), ledgerTotals.value(), slotTotals.value(),
+                        difference));
+            }
+        }
+        return ValuationReconciliationResponse.builder()
+                .productsChecked(productIds.size())
+                .tolerance(tolerance)
+                .consistent(mismatches.isEmpty())
+                .mismatches(mismatches)
+                .build();
+    }
+
+    private StockValuationResponse toResponse(String groupBy, List<ValuationRow> rows) {
+        ValuationRow total = stockValuationRepository.total();
+        return StockValuationResponse.builder()
+                .groupBy(groupBy)
+                .totalQuantity(total.quantity())
+                .totalValue(total.value())
+                .lines(rows.stream()
+                        .map(row -> new StockValuationResponse.Line(row.id(), row.label(), row.quantity(), row.value()))
+                        .toList())
+                .build();
+    }
+}
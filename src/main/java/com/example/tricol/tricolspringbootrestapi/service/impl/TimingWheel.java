@@ -0,0 +1,74 @@
+package com.example.tricol.tricolspringbootrestapi.service.impl;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Hashed timing wheel: a key is filed in the bucket of its deadline tick, so scheduling, cancelling and
+ * expiring are O(1) per key whatever the number of pending deadlines. A deadline further away than one
+ * turn of the wheel waits in its bucket for the later rounds.
+ */
+final class TimingWheel<K> {
+
+    private final long tickMillis;
+    private final List<Set<K>> buckets;
+    private final Map<K, Long> deadlineTicks = new HashMap<>();
+    private long currentTick;
+
+    TimingWheel(Duration tick, int size, long nowMillis) {
+        this.tickMillis = tick.toMillis();
+        this.buckets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            buckets.add(new HashSet<>());
+        }
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    synchronized void schedule(K key, long deadlineMillis) {
+        cancel(key);
+        // Rounded up: a key never expires before its deadline
+        long tick = Math.max(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), currentTick + 1);
+        deadlineTicks.put(key, tick);
+        buckets.get(index(tick)).add(key);
+    }
+
+    synchronized boolean cancel(K key) {
+        Long tick = deadlineTicks.remove(key);
+        if (tick == null) {
+            return false;
+        }
+        buckets.get(index(tick)).remove(key);
+        return true;
+    }
+
+    /**
+     * Moves the wheel to now and returns the keys whose deadline has passed.
+     */
+    synchronized List<K> advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        List<K> expired = new ArrayList<>();
+        // After a long pause every bucket is visited once, not once per missed tick
+        long lastTick = Math.min(targetTick, currentTick + buckets.size());
+        for (long tick = currentTick + 1; tick <= lastTick; tick++) {
+            Iterator<K> keys = buckets.get(index(tick)).iterator();
+            while (keys.hasNext()) {
+                K key = keys.next();
+                if (deadlineTicks.get(key) <= targetTick) {
+                    keys.remove();
+                    deadlineTicks.remove(key);
+                    expired.add(key);
+                }
+            }
+        }
+        currentTick = Math.max(currentTick, targetTick);
+        return expired;
+    }
+
+    synchronized int size() {
+        return deadlineTicks.size();
+    }
+
+    private int index(long tick) {
+        return (int) Math.floorMod(tick, (long) buckets.size());
+    }
+}
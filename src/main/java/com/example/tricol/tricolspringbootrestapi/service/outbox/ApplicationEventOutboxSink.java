@@ -0,0 +1,30 @@
+package com.example.tricol.tricolspringbootrestapi.service.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Republishes each event as a Spring application event, for in-process {@code @EventListener(OutboxEvent.class)}
+ * beans. Listeners run on the dispatcher thread; one that throws gets the whole batch again.
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.application-events.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class ApplicationEventOutboxSink implements OutboxSink {
+
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    @Override
+    public String name() {
+        return "application-events";
+    }
+
+    @Override
+    public void deliver(List<OutboxEvent> events) {
+        events.forEach(applicationEventPublisher::publishEvent);
+    }
+}
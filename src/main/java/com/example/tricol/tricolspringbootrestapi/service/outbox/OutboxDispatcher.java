@@ -0,0 +1,189 @@
+package com.example.tricol.tricolspringbootrestapi.service.outbox;
+
+import com.example.tricol.tricolspringbootrestapi.repository.OutboxJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains outbox_events to every {@link OutboxSink} on a dedicated thread, off the write path.
+ * - Woken right after a local commit, and polls for events committed by other nodes.
+ * - Each batch is delivered and marked dispatched under the outbox_dispatch_lock row, so only one node
+ *   dispatches at a time and events leave in id order.
+ * - A failed batch is retried as is, with exponential backoff, and nothing after it is delivered first:
+ *   per-product order is kept and delivery is at-least-once.
+ */
+@Component
+@Slf4j
+public class OutboxDispatcher {
+
+    private final OutboxJdbcRepository outboxRepository;
+    private final List<OutboxSink> sinks;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration retryBackoff;
+    private final Duration maxRetryBackoff;
+    private final Duration retention;
+    private final Timer lag;
+    private final Counter dispatched;
+    private final Counter failures;
+
+    private final Semaphore wakeUps = new Semaphore(0);
+    private volatile boolean running;
+    private Thread worker;
+
+    public OutboxDispatcher(OutboxJdbcRepository outboxRepository,
+                            List<OutboxSink> sinks,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.outbox.batch-size:200}") int batchSize,
+                            @Value("${app.outbox.poll-interval:500ms}") Duration pollInterval,
+                            @Value("${app.outbox.retry-backoff:1s}") Duration retryBackoff,
+                            @Value("${app.outbox.max-retry-backoff:1m}") Duration maxRetryBackoff,
+                            @Value("${app.outbox.retention:7d}") Duration retention) {
+        this.outboxRepository = outboxRepository;
+        this.sinks = sinks;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.retryBackoff = retryBackoff;
+        this.maxRetryBackoff = maxRetryBackoff;
+        this.retention = retention;
+        this.lag = Timer.builder("outbox.lag")
+                .description("Time between an event's commit and its delivery to the sinks")
+                .register(meterRegistry);
+        this.dispatched = Counter.builder("outbox.dispatched").register(meterRegistry);
+        this.failures = Counter.builder("outbox.failures").register(meterRegistry);
+    }
+
+    // Started once Liquibase has run and the context is up
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        log.info("Outbox dispatcher started with sinks {}", sinks.stream().map(OutboxSink::name).toList());
+        running = true;
+        worker = new Thread(this::run, "outbox-dispatcher");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    public void wakeUp() {
+        if (wakeUps.availablePermits() == 0) {
+            wakeUps.release();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.purge-interval:1h}")
+    public void purgeDispatched() {
+        int purged = outboxRepository.purgeDispatchedBefore(LocalDateTime.now().minus(retention));
+        if (purged > 0) {
+            log.debug("Purged {} dispatched outbox events", purged);
+        }
+    }
+
+    private void run() {
+        int consecutiveFailures = 0;
+        while (running) {
+            try {
+                if (consecutiveFailures == 0) {
+                    wakeUps.tryAcquire(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                    wakeUps.drainPermits();
+                } else {
+                    Thread.sleep(backoff(consecutiveFailures).toMillis());
+                }
+                // Keep going while full batches come back: a backlog is drained without waiting for the poll
+                while (running && dispatchBatch() == batchSize) {
+                    Thread.yield();
+                }
+                consecutiveFailures = 0;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                consecutiveFailures++;
+                failures.increment();
+                log.warn("Outbox dispatch failed ({} in a row), retrying in {}: {}",
+                        consecutiveFailures, backoff(consecutiveFailures), ex.getMessage());
+            }
+        }
+    }
+
+    private int dispatchBatch() {
+        List<OutboxEvent> batch;
+        try {
+            batch = transactionTemplate.execute(status -> {
+                if (!outboxRepository.tryLockDispatcher()) {
+                    return List.<OutboxEvent>of();
+                }
+                List<OutboxEvent> pending = outboxRepository.findPending(batchSize);
+                if (!pending.isEmpty()) {
+                    deliver(pending);
+                    outboxRepository.markDispatched(pending.stream().map(OutboxEvent::id).toList());
+                }
+                return pending;
+            });
+        } catch (SinkFailedException ex) {
+            // Counted outside the rolled back dispatch transaction
+            outboxRepository.recordFailedAttempt(ex.eventIds);
+            throw ex;
+        }
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (OutboxEvent event : batch) {
+            lag.record(Duration.between(event.createdAt(), now));
+        }
+        dispatched.increment(batch.size());
+        return batch.size();
+    }
+
+    private void deliver(List<OutboxEvent> batch) {
+        for (OutboxSink sink : sinks) {
+            try {
+                sink.deliver(batch);
+            } catch (Exception ex) {
+                throw new SinkFailedException(sink, batch, ex);
+            }
+        }
+    }
+
+    private Duration backoff(int consecutiveFailures) {
+        long multiplier = 1L << Math.min(consecutiveFailures - 1, 16);
+        Duration delay = retryBackoff.multipliedBy(multiplier);
+        return delay.compareTo(maxRetryBackoff) > 0 ? maxRetryBackoff : delay;
+    }
+
+    private static class SinkFailedException extends RuntimeException {
+        private final List<Long> eventIds;
+
+        SinkFailedException(OutboxSink sink, List<OutboxEvent> batch, Exception cause) {
+            super("Sink " + sink.name() + " rejected events " + batch.get(0).id() + ".."
+                    + batch.get(batch.size() - 1).id() + ": " + cause.getMessage(), cause);
+            this.eventIds = batch.stream().map(OutboxEvent::id).toList();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.tricol.tricolspringbootrestapi.service.outbox;
+
+import com.example.tricol.tricolspringbootrestapi.enums.OutboxEventType;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.LocalDateTime;
+
+/**
+ * A committed inventory domain event as handed to the sinks. id increases with commit order for events
+ * touching the same products, and is the key consumers should deduplicate on (delivery is at-least-once).
+ */
+public record OutboxEvent(long id,
+                          OutboxEventType eventType,
+                          String aggregateType,
+                          long aggregateId,
+                          LocalDateTime createdAt,
+                          @JsonRawValue String payload) {
+}
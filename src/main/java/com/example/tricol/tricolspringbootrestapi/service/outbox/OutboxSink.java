@@ -0,0 +1,14 @@
+package com.example.tricol.tricolspringbootrestapi.service.outbox;
+
+import java.util.List;
+
+/**
+ * Destination of outbox events. A batch is delivered as a whole: throwing makes the dispatcher retry the
+ * same batch later, so a sink may see an event more than once and must be idempotent on the event id.
+ */
+public interface OutboxSink {
+
+    String name();
+
+    void deliver(List<OutboxEvent> events) throws Exception;
+}
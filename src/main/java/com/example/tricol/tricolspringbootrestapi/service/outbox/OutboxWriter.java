@@ -0,0 +1,94 @@
+package com.example.tricol.tricolspringbootrestapi.service.outbox;
+
+import com.example.tricol.tricolspringbootrestapi.enums.OutboxEventType;
+import com.example.tricol.tricolspringbootrestapi.model.ExitSlip;
+import com.example.tricol.tricolspringbootrestapi.model.Order;
+import com.example.tricol.tricolspringbootrestapi.model.StockSlot;
+import com.example.tricol.tricolspringbootrestapi.repository.OutboxJdbcRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appends domain events to outbox_events inside the caller's transaction, so an event exists if and only if
+ * the change it describes committed. Call it after the stock writes: the product rows are locked by then,
+ * which makes event ids follow commit order for any given product.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxWriter {
+
+    private static final String ORDER = "ORDER";
+    private static final String EXIT_SLIP = "EXIT_SLIP";
+
+    private final OutboxJdbcRepository outboxRepository;
+    private final OutboxDispatcher outboxDispatcher;
+    private final ObjectMapper objectMapper;
+
+    public void orderReceived(Order order, List<StockSlot> stockSlots) {
+        List<ReceivedLine> lines = stockSlots.stream()
+                .map(slot -> new ReceivedLine(slot.getProduct().getId(), slot.getId(), slot.getLotNumber(),
+                        slot.getQuantity(), slot.getUnitPrice()))
+                .toList();
+        Long supplierId = order.getSupplier() != null ? order.getSupplier().getId() : null;
+        append(OutboxEventType.ORDER_RECEIVED, ORDER, order.getId(),
+                new OrderReceived(order.getId(), supplierId, LocalDateTime.now(), lines));
+    }
+
+    public void exitSlipValidated(ExitSlip exitSlip, Map<Long, Double> deltasByProductId) {
+        List<ConsumedLine> lines = deltasByProductId.entrySet().stream()
+                .map(delta -> new ConsumedLine(delta.getKey(), -delta.getValue()))
+                .toList();
+        append(OutboxEventType.EXIT_SLIP_VALIDATED, EXIT_SLIP, exitSlip.getId(),
+                new ExitSlipValidated(exitSlip.getId(), exitSlip.getSlipNumber(), exitSlip.getDestinationWorkshop(),
+                        exitSlip.getReason() != null ? exitSlip.getReason().name() : null,
+                        exitSlip.getValidatedAt(), lines));
+    }
+
+    public void exitSlipCancelled(ExitSlip exitSlip) {
+        append(OutboxEventType.EXIT_SLIP_CANCELLED, EXIT_SLIP, exitSlip.getId(),
+                new ExitSlipCancelled(exitSlip.getId(), exitSlip.getSlipNumber(), exitSlip.getCancelledAt()));
+    }
+
+    private void append(OutboxEventType eventType, String aggregateType, long aggregateId, Object payload) {
+        try {
+            outboxRepository.insert(eventType, aggregateType, aggregateId, objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize " + eventType + " event", ex);
+        }
+        // The poll would find it too; the wake-up only removes the poll delay on this node
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    outboxDispatcher.wakeUp();
+                }
+            });
+        } else {
+            outboxDispatcher.wakeUp();
+        }
+    }
+
+    public record ReceivedLine(Long productId, Long stockSlotId, String lotNumber, Double quantity, Double unitPrice) {
+    }
+
+    public record OrderReceived(Long orderId, Long supplierId, LocalDateTime receivedAt, List<ReceivedLine> lines) {
+    }
+
+    public record ConsumedLine(Long productId, Double quantity) {
+    }
+
+    public record ExitSlipValidated(Long exitSlipId, String slipNumber, String destinationWorkshop, String reason,
+                                    LocalDateTime validatedAt, List<ConsumedLine> lines) {
+    }
+
+    public record ExitSlipCancelled(Long exitSlipId, String slipNumber, LocalDateTime cancelledAt) {
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.tricol.tricolspringbootrestapi.repository;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/*
+    Vérifie avec EXPLAIN que chaque finder des chemins critiques utilise l'index prévu
+    par db/changelog/v012-add-query-indexes.yaml. Nécessite la base MySQL migrée par Liquibase.
+    Lancer avec TRICOL_DB_TESTS=true mvn test -Dtest=QueryIndexUsageTest
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfEnvironmentVariable(named = "TRICOL_DB_TESTS", matches = "true")
+public class QueryIndexUsageTest {
+
+    private static final String MARKER = "EXPLAIN-IT";
+    private static final long ID_BASE = 900_000_000L;
+    private static final int PRODUCTS = 50;
+    private static final int SLOTS_PER_PRODUCT = 100;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long firstProductId;
+    private long supplierId;
+
+    @BeforeAll
+    void seed() {
+        LocalDateTime now = LocalDateTime.now();
+
+        jdbcTemplate.update("INSERT INTO supplier (email, phone, society) VALUES (?, '0600000000', ?)",
+                MARKER + "@tricol.test", MARKER);
+        supplierId = jdbcTemplate.queryForObject("SELECT id FROM supplier WHERE email = ?", Long.class, MARKER + "@tricol.test");
+
+        for (int p = 0; p < PRODUCTS; p++) {
+            jdbcTemplate.update("INSERT INTO products (reference, name, unit_price, category, measure_unit, reorder_point, current_stock, created_at) " +
+                    "VALUES (?, ?, 1, ?, 'UNIT', 0, 0, ?)", MARKER + "-" + p, MARKER, MARKER, Timestamp.valueOf(now));
+        }
+        firstProductId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM products WHERE category = ?", Long.class, MARKER);
+
+        List<Object[]> slots = new ArrayList<>();
+        List<Object[]> movements = new ArrayList<>();
+        for (int p = 0; p < PRODUCTS; p++) {
+            for (int s = 0; s < SLOTS_PER_PRODUCT; s++) {
+                long id = ID_BASE + (long) p * SLOTS_PER_PRODUCT + s;
+                Timestamp date = Timestamp.valueOf(now.minusDays(SLOTS_PER_PRODUCT - s));
+                slots.add(new Object[]{id, MARKER + "-" + id, date, 10.0, s % 3 == 0 ? 0.0 : 10.0, 1.0, firstProductId + p});
+                movements.add(new Object[]{id, s % 10 == 0 ? "out" : "in", date, 10.0, firstProductId + p, id});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO stock_slots (id, lot_number, entry_date, quantity, available_quantity, unit_price, product_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)", slots);
+        jdbcTemplate.batchUpdate("INSERT INTO stock_movements (id, type, date, quantity, product_id, stock_slot_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", movements);
+
+        // Skewed statuses and many workshops, like production data
+        List<Object[]> orders = new ArrayList<>();
+        List<Object[]> slips = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Timestamp date = Timestamp.valueOf(now.minusHours(i));
+            orders.add(new Object[]{supplierId, date, i % 50 == 0 ? "pending" : "delivered"});
+            slips.add(new Object[]{MARKER + "-" + i, date, MARKER + "-W" + (i % 100), i % 50 == 0 ? "DRAFT" : "VALIDATED", date});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO orders (supplier_id, order_date, status) VALUES (?, ?, ?)", orders);
+        jdbcTemplate.batchUpdate("INSERT INTO exit_slips (slip_number, exit_date, destination_workshop, reason, status, created_at) " +
+                "VALUES (?, ?, ?, 'PRODUCTION', ?, ?)", slips);
+
+        jdbcTemplate.execute("ANALYZE TABLE stock_slots, stock_movements, orders, exit_slips");
+    }
+
+    @AfterAll
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM exit_slips WHERE slip_number LIKE ?", MARKER + "-%");
+        jdbcTemplate.update("DELETE FROM orders WHERE supplier_id = ?", supplierId);
+        jdbcTemplate.update("DELETE FROM stock_movements WHERE id >= ?", ID_BASE);
+        jdbcTemplate.update("DELETE FROM stock_slots WHERE id >= ?", ID_BASE);
+        jdbcTemplate.update("DELETE FROM products WHERE category = ?", MARKER);
+        jdbcTemplate.update("DELETE FROM supplier WHERE id = ?", supplierId);
+    }
+
+    @Test
+    void fifoCandidateLookup_usesFifoIndex() {
+        assertIndex("idx_stock_slots_fifo",
+                "SELECT * FROM stock_slots WHERE product_id IN (?, ?) AND available_quantity > 0 " +
+                "ORDER BY product_id, entry_date, id", firstProductId, firstProductId + 1);
+    }
+
+    @Test
+    void movementCursorSeek_usesDateIdIndex() {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        assertIndex("idx_stock_movements_date_id",
+                "SELECT * FROM stock_movements WHERE date < ? OR (date = ? AND id < ?) " +
+                "ORDER BY date DESC, id DESC LIMIT 11", now, now, Long.MAX_VALUE);
+    }
+
+    @Test
+    void movementSearchByProduct_usesProductDateIndex() {
+        assertIndex("idx_stock_movements_product_date",
+                "SELECT * FROM stock_movements WHERE product_id = ? ORDER BY date DESC, id DESC LIMIT 11", firstProductId);
+    }
+
+    @Test
+    void movementSearchByType_usesTypeDateIndex() {
+        assertIndex("idx_stock_movements_type_date",
+                "SELECT * FROM stock_movements WHERE type = 'out' ORDER BY date DESC LIMIT 11");
+    }
+
+    @Test
+    void movementSearchByLot_usesStockSlotDateIndex() {
+        assertIndex("idx_stock_movements_stock_slot_date",
+                "SELECT * FROM stock_movements WHERE stock_slot_id = ? ORDER BY date DESC", ID_BASE);
+    }
+
+    @Test
+    void ordersByStatus_usesStatusIndex() {
+        assertIndex("idx_orders_status", "SELECT * FROM orders WHERE status = 'pending'");
+    }
+
+    @Test
+    void ordersByDateRange_usesOrderDateIndex() {
+        LocalDateTime now = LocalDateTime.now();
+        assertIndex("idx_orders_order_date", "SELECT * FROM orders WHERE order_date BETWEEN ? AND ?",
+                Timestamp.valueOf(now.minusHours(5)), Timestamp.valueOf(now));
+    }
+
+    @Test
+    void exitSlipsByStatusAndWorkshop_usesStatusWorkshopIndex() {
+        assertIndex("idx_exit_slips_status_workshop",
+                "SELECT * FROM exit_slips WHERE status = 'DRAFT' AND destination_workshop = ?", MARKER + "-W0");
+    }
+
+    @Test
+    void exitSlipsByWorkshop_usesWorkshopIndex() {
+        assertIndex("idx_exit_slips_workshop",
+                "SELECT * FROM exit_slips WHERE destination_workshop = ?", MARKER + "-W1");
+    }
+
+    private void assertIndex(String expectedIndex, String sql, Object... args) {
+        List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, args);
+        assertEquals(expectedIndex, plan.get(0).get("key"), () -> "Unexpected plan for " + sql + ": " + plan);
+    }
+}
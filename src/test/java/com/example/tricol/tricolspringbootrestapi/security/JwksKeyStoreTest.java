@@ -0,0 +1,154 @@
+package com.example.tricol.tricolspringbootrestapi.security;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+    JwksKeyStore contre un faux serveur JWKS local (com.sun.net.httpserver), sans Keycloak.
+ */
+public class JwksKeyStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+    private URI jwksUri;
+    private final AtomicReference<JWKSet> served = new AtomicReference<>();
+    private final AtomicInteger fetches = new AtomicInteger();
+    private volatile long responseDelayMs;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/certs", exchange -> {
+            fetches.incrementAndGet();
+            try {
+                Thread.sleep(responseDelayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = served.get().toString(true).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        jwksUri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/certs");
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void testRefresh_ServesFetchedKeysAndPersistsThem() throws Exception {
+        RSAKey key = newKey("k1");
+        served.set(new JWKSet(key));
+        Path cacheFile = tempDir.resolve("jwks.json");
+
+        JwksKeyStore store = newStore(jwksUri, cacheFile);
+        store.refresh().get();
+
+        assertEquals(1, select(store, "k1").size());
+        // Seule la partie publique est écrite sur disque
+        JWKSet persisted = JWKSet.load(cacheFile.toFile());
+        assertEquals("k1", persisted.getKeys().get(0).getKeyID());
+        assertFalse(persisted.getKeys().get(0).isPrivate());
+    }
+
+    @Test
+    void testGet_UnknownKid_RefreshesOnceAndFindsRotatedKey() throws Exception {
+        served.set(new JWKSet(newKey("k1")));
+        JwksKeyStore store = newStore(jwksUri, tempDir.resolve("jwks.json"));
+        store.refresh().get();
+
+        // Rotation côté Keycloak
+        served.set(new JWKSet(List.of(newKey("k1"), newKey("k2"))));
+
+        assertEquals(1, select(store, "k2").size());
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    void testGet_ConcurrentUnknownKid_SingleFetchInFlight() throws Exception {
+        served.set(new JWKSet(newKey("k1")));
+        responseDelayMs = 300;
+        JwksKeyStore store = newStore(jwksUri, tempDir.resolve("jwks.json"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<JWK>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> select(store, "k1")));
+            }
+            for (Future<List<JWK>> result : results) {
+                assertEquals(1, result.get(5, TimeUnit.SECONDS).size());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    void testIssuerDown_ServesLastKnownKeysFromFile() throws Exception {
+        served.set(new JWKSet(newKey("k1")));
+        Path cacheFile = tempDir.resolve("jwks.json");
+        newStore(jwksUri, cacheFile).refresh().get();
+        server.stop(0);
+
+        // Redémarrage pendant la panne: les clés viennent du fichier
+        JwksKeyStore restarted = newStore(jwksUri, cacheFile);
+        JWKSet afterFailedRefresh = restarted.refresh().get();
+
+        assertEquals(1, afterFailedRefresh.size());
+        assertEquals(1, select(restarted, "k1").size());
+    }
+
+    @Test
+    void testNoCacheFileAndIssuerDown_ServesNoKeys() throws Exception {
+        server.stop(0);
+        JwksKeyStore store = newStore(jwksUri, tempDir.resolve("missing.json"));
+
+        assertTrue(select(store, "k1").isEmpty());
+        assertFalse(Files.exists(tempDir.resolve("missing.json")));
+    }
+
+    private JwksKeyStore newStore(URI uri, Path cacheFile) {
+        return new JwksKeyStore(uri, cacheFile, Duration.ofMinutes(5), Duration.ZERO, Duration.ofSeconds(2));
+    }
+
+    private static List<JWK> select(JwksKeyStore store, String kid) throws Exception {
+        return store.get(new JWKSelector(new JWKMatcher.Builder().keyID(kid).build()), null);
+    }
+
+    private static RSAKey newKey(String kid) throws Exception {
+        return new RSAKeyGenerator(2048).keyID(kid).generate();
+    }
+}
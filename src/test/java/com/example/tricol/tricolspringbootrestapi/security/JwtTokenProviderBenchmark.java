@@ -0,0 +1,77 @@
+package com.example.tricol.tricolspringbootrestapi.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Coût de la validation d'un jeton local, en ns/op :
+    - baselineParseTwice : l'ancien chemin (validateToken puis getUsernameFromJWT, un parseur neuf à chaque appel) ;
+    - validateAndExtractCold : parseur partagé, 4096 jetons distincts en rotation pour un cache de 16 entrées,
+      donc HMAC et JSON à presque chaque appel ;
+    - validateAndExtractWarm : même jeton répété, servi par le cache des jetons vérifiés.
+
+    Lancement (hors surefire) :
+    mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+    java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main JwtTokenProviderBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+
+    private static final String SECRET = "48484984984564654iuhogffiuyftyvio498498498484988";
+    private static final int COLD_TOKENS = 4096;
+
+    private SecretKey key;
+    private JwtTokenProvider cold;
+    private JwtTokenProvider warm;
+    private String token;
+    private String[] coldTokens;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        cold = new JwtTokenProvider(SECRET, 86400000, 604800000, "tricol-api", 16);
+        warm = new JwtTokenProvider(SECRET, 86400000, 604800000, "tricol-api", 10000);
+        CustomUserDetails user = new CustomUserDetails(1L, "magasinier@tricol.ma",
+                List.of("ROLE_MAGASINIER", "STOCK_READ", "EXIT_SLIPS_CREATE"), 0L);
+        token = warm.generateToken(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+        warm.validateAndExtract(token);
+        coldTokens = new String[COLD_TOKENS];
+        for (int i = 0; i < COLD_TOKENS; i++) {
+            CustomUserDetails other = new CustomUserDetails((long) i, "user" + i + "@tricol.ma",
+                    List.of("ROLE_MAGASINIER", "STOCK_READ"), 0L);
+            coldTokens[i] = cold.generateToken(new UsernamePasswordAuthenticationToken(other, null, other.getAuthorities()));
+        }
+    }
+
+    @Benchmark
+    public String baselineParseTwice() {
+        Jwts.parser().verifyWith(key).build().parseSignedClaims(token);
+        Claims claims = Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload();
+        return claims.getSubject();
+    }
+
+    @Benchmark
+    public Object validateAndExtractCold() {
+        next = (next + 1) % COLD_TOKENS;
+        return cold.validateAndExtract(coldTokens[next]);
+    }
+
+    @Benchmark
+    public Object validateAndExtractWarm() {
+        return warm.validateAndExtract(token);
+    }
+}
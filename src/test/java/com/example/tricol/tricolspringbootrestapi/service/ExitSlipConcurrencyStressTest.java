@@ -0,0 +1,151 @@
+package com.example.tricol.tricolspringbootrestapi.service;
+
+import com.example.tricol.tricolspringbootrestapi.dto.request.CreateExitSlipRequest;
+import com.example.tricol.tricolspringbootrestapi.dto.request.ExitSlipItemRequest;
+import com.example.tricol.tricolspringbootrestapi.enums.ExitReason;
+import com.example.tricol.tricolspringbootrestapi.exception.InsufficientStockException;
+import com.example.tricol.tricolspringbootrestapi.model.Product;
+import com.example.tricol.tricolspringbootrestapi.model.StockSlot;
+import com.example.tricol.tricolspringbootrestapi.repository.ProductRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.StockSlotRepository;
+import com.example.tricol.tricolspringbootrestapi.service.impl.StockReservationTable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+    Validation concurrente des bons de sortie sur une vraie base MySQL (docker compose up mysql).
+    Lancer avec TRICOL_DB_TESTS=true mvn test -Dtest=ExitSlipConcurrencyStressTest
+ */
+@SpringBootTest
+@EnabledIfEnvironmentVariable(named = "TRICOL_DB_TESTS", matches = "true")
+public class ExitSlipConcurrencyStressTest {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private ExitSlipService exitSlipService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockSlotRepository stockSlotRepository;
+
+    @Autowired
+    private StockReservationTable stockReservationTable;
+
+    @Test
+    void testConcurrentValidation_SameProduct_NeverOversells() throws Exception {
+        // 3 slots of 10 units: drafts reserve their quantity, so only 30 one-unit drafts can be created
+        Product product = createProductWithSlots(3, 10.0);
+        List<Long> slipIds = new ArrayList<>(createSlips(product, 30));
+        assertThrows(InsufficientStockException.class, () -> createSlips(product, 1));
+
+        // Releasing the reservations (as if they had expired) lets 10 more drafts in: 40 slips race for 30 units
+        slipIds.forEach(stockReservationTable::release);
+        slipIds.addAll(createSlips(product, 10));
+
+        AtomicInteger validated = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        runConcurrently(slipIds, id -> {
+            try {
+                exitSlipService.validateExitSlip(id);
+                validated.incrementAndGet();
+            } catch (InsufficientStockException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(30, validated.get());
+        assertEquals(10, rejected.get());
+        assertEquals(0.0, productRepository.findById(product.getId()).orElseThrow().getCurrentStock(), 0.0001);
+        for (StockSlot slot : stockSlotRepository.findByProduct(product)) {
+            assertEquals(0.0, slot.getAvailableQuantity(), 0.0001);
+        }
+    }
+
+    @Test
+    void testConcurrentValidation_DisjointProducts_DoNotSerialize() throws Exception {
+        List<Long> sequentialSlips = new ArrayList<>();
+        List<Long> concurrentSlips = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            sequentialSlips.addAll(createSlips(createProductWithSlots(5, 100.0), 10));
+            concurrentSlips.addAll(createSlips(createProductWithSlots(5, 100.0), 10));
+        }
+
+        long start = System.nanoTime();
+        sequentialSlips.forEach(exitSlipService::validateExitSlip);
+        long sequentialNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        runConcurrently(concurrentSlips, exitSlipService::validateExitSlip);
+        long concurrentNanos = System.nanoTime() - start;
+
+        // Row locks are per product, so disjoint slips must not queue behind each other
+        assertTrue(concurrentNanos <= sequentialNanos,
+                "concurrent run took " + concurrentNanos / 1_000_000 + " ms, sequential " + sequentialNanos / 1_000_000 + " ms");
+    }
+
+    private Product createProductWithSlots(int slotCount, double quantityPerSlot) {
+        String reference = "STRESS-" + UUID.randomUUID();
+        Product product = new Product();
+        product.setReference(reference);
+        product.setName(reference);
+        product.setUnitPrice(1.0);
+        product.setCategory("STRESS");
+        product.setMeasureUnit("UNIT");
+        product.setReorderPoint(0.0);
+        product.setCurrentStock(slotCount * quantityPerSlot);
+        product = productRepository.save(product);
+
+        for (int i = 0; i < slotCount; i++) {
+            StockSlot slot = new StockSlot();
+            slot.setLotNumber(reference + "-" + i);
+            slot.setProduct(product);
+            slot.setQuantity(quantityPerSlot);
+            slot.setAvailableQuantity(quantityPerSlot);
+            slot.setUnitPrice(1.0);
+            stockSlotRepository.save(slot);
+        }
+        return product;
+    }
+
+    private List<Long> createSlips(Product product, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ExitSlipItemRequest item = new ExitSlipItemRequest(product.getId(), BigDecimal.ONE, null);
+            CreateExitSlipRequest request = new CreateExitSlipRequest(
+                    LocalDateTime.now(), "STRESS", ExitReason.PRODUCTION, null, List.of(item));
+            ids.add(exitSlipService.createExitSlip(request).getId());
+        }
+        return ids;
+    }
+
+    private void runConcurrently(List<Long> slipIds, Consumer<Long> action) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Long id : slipIds) {
+                futures.add(executor.submit(() -> action.accept(id)));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.tricol.tricolspringbootrestapi.service;
 
+import com.example.tricol.tricolspringbootrestapi.dto.response.AllocationPreviewResponse;
+import com.example.tricol.tricolspringbootrestapi.dto.response.BatchValidationResponse;
 import com.example.tricol.tricolspringbootrestapi.dto.response.ExitSlipResponse;
+import com.example.tricol.tricolspringbootrestapi.enums.AllocationMethod;
 import com.example.tricol.tricolspringbootrestapi.enums.ExitReason;
 import com.example.tricol.tricolspringbootrestapi.enums.ExitSlipStatus;
 import com.example.tricol.tricolspringbootrestapi.exception.InsufficientStockException;
@@ -8,26 +11,44 @@ import com.example.tricol.tricolspringbootrestapi.mapper.ExitSlipMapper;
 import com.example.tricol.tricolspringbootrestapi.mapper.OrderMapper;
 import com.example.tricol.tricolspringbootrestapi.mapper.OrderItemMapper;
 import com.example.tricol.tricolspringbootrestapi.model.*;
+import com.example.tricol.tricolspringbootrestapi.repository.ExitCostRollupJdbcRepository;
 import com.example.tricol.tricolspringbootrestapi.repository.ExitSlipRepository;
 import com.example.tricol.tricolspringbootrestapi.repository.OrderRepository;
 import com.example.tricol.tricolspringbootrestapi.repository.ProductRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.StockLedgerJdbcRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.StockLedgerJdbcRepository.SlotDebit;
+import com.example.tricol.tricolspringbootrestapi.repository.StockLedgerJdbcRepository.ValuationCredit;
 import com.example.tricol.tricolspringbootrestapi.repository.StockMovementRepository;
 import com.example.tricol.tricolspringbootrestapi.repository.StockSlotRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.StockValuationJdbcRepository;
 import com.example.tricol.tricolspringbootrestapi.repository.SupplierRepository;
+import com.example.tricol.tricolspringbootrestapi.service.impl.AllocationPreviewCache;
+import com.example.tricol.tricolspringbootrestapi.service.impl.ExitSlipBatchValidator;
 import com.example.tricol.tricolspringbootrestapi.service.impl.ExitSlipServiceImpl;
 import com.example.tricol.tricolspringbootrestapi.service.impl.OrderServiceImpl;
+import com.example.tricol.tricolspringbootrestapi.service.impl.ProductCatalogCache;
+import com.example.tricol.tricolspringbootrestapi.service.impl.StockConsumptionEngine;
+import com.example.tricol.tricolspringbootrestapi.service.impl.StockEventStream;
+import com.example.tricol.tricolspringbootrestapi.service.impl.StockReservationTable;
+import com.example.tricol.tricolspringbootrestapi.service.allocation.*;
+import com.example.tricol.tricolspringbootrestapi.service.outbox.OutboxWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -94,12 +115,62 @@ public class ExitSlipServiceTest {
     @Mock
     private SupplierRepository supplierRepository;
 
-    @InjectMocks
+    @Mock
+    private StockLedgerJdbcRepository stockLedgerJdbcRepository;
+
+    @Mock
+    private DocumentNumberService documentNumberService;
+
+    @Mock
+    private ProductCatalogCache productCatalogCache;
+
+    @Mock
+    private StockEventStream stockEventStream;
+
+    @Mock
+    private OutboxWriter outboxWriter;
+
+    @Mock
+    private StockValuationJdbcRepository stockValuationRepository;
+
+    @Mock
+    private StockReservationTable stockReservationTable;
+
+    @Mock
+    private ExitCostRollupJdbcRepository exitCostRollupRepository;
+
+    @Captor
+    private ArgumentCaptor<List<SlotDebit>> debitCaptor;
+
+    @Captor
+    private ArgumentCaptor<Map<Long, Double>> productDeltaCaptor;
+
+    @Captor
+    private ArgumentCaptor<List<StockMovement>> movementListCaptor;
+
+    @Captor
+    private ArgumentCaptor<List<ValuationCredit>> valuationCreditCaptor;
+
     private ExitSlipServiceImpl exitSlipService;
 
     @InjectMocks
     private OrderServiceImpl orderService;
 
+    @BeforeEach
+    void setUp() {
+        StockConsumptionEngine stockConsumptionEngine =
+                new StockConsumptionEngine(productRepository, stockSlotRepository, stockLedgerJdbcRepository,
+                        stockMovementRepository, productCatalogCache, allocationStrategyResolver(Map.of()));
+        ExitSlipBatchValidator exitSlipBatchValidator = new ExitSlipBatchValidator(exitSlipRepository,
+                stockConsumptionEngine, stockEventStream, outboxWriter, stockReservationTable, exitCostRollupRepository,
+                mock(PlatformTransactionManager.class), 50);
+        exitSlipService = new ExitSlipServiceImpl(exitSlipRepository, productRepository, exitSlipMapper,
+                stockConsumptionEngine, documentNumberService, productCatalogCache, stockEventStream, outboxWriter,
+                stockValuationRepository, stockReservationTable, exitSlipBatchValidator,
+                new AllocationPreviewCache(productCatalogCache, new SimpleMeterRegistry(), 100, Duration.ofMinutes(10)),
+                exitCostRollupRepository);
+    }
+
 
     // Tâche 1.1.A: Mécanisme FIFO
     @Test
@@ -137,11 +208,9 @@ public class ExitSlipServiceTest {
         exitSlip.setItems(List.of(item));
 
         // Mock repository behaviors
-        when(exitSlipRepository.findById(1L)).thenReturn(Optional.of(exitSlip));
-        when(stockSlotRepository.findByProductAndAvailableQuantityGreaterThanOrderByEntryDateAsc(testProduct, 0.0))
+        when(exitSlipRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(exitSlip));
+        when(stockSlotRepository.lockAvailableByProductIds(anyCollection()))
                 .thenReturn(List.of(slot));
-        when(stockSlotRepository.save(any(StockSlot.class))).thenAnswer(invocation -> invocation.getArgument(0));
-        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(exitSlipRepository.save(any(ExitSlip.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(exitSlipMapper.toResponse(any(ExitSlip.class))).thenAnswer(invocation -> {
             ExitSlip es = invocation.getArgument(0);
@@ -154,21 +223,28 @@ public class ExitSlipServiceTest {
         // Assert: Check status is validated
         assertEquals(ExitSlipStatus.VALIDATED, validatedSlip.getStatus());
 
-        // Assert: Verify slot available quantity is reduced to 60
-        ArgumentCaptor<StockSlot> slotCaptor = ArgumentCaptor.forClass(StockSlot.class);
-
-        verify(stockSlotRepository, atLeastOnce()).save(slotCaptor.capture());
-        StockSlot savedSlot = slotCaptor.getValue();
-        assertEquals(60.0, savedSlot.getAvailableQuantity(), 0.001);
+        // Assert: Verify 40 units are debited from the slot, leaving 60
+        verify(stockLedgerJdbcRepository, times(1)).debitSlots(debitCaptor.capture());
+        List<SlotDebit> debits = debitCaptor.getValue();
+        assertEquals(1, debits.size());
+        assertEquals(1L, debits.get(0).slotId());
+        assertEquals(60.0, slot.getAvailableQuantity() - debits.get(0).quantity(), 0.001);
+        // La valorisation est débitée des mêmes quantités, lot par lot
+        verify(stockLedgerJdbcRepository, times(1)).debitValuations(debits);
 
         // Assert: Verify product current stock is reduced to 60
-        ArgumentCaptor<Product> productCaptor = ArgumentCaptor.forClass(Product.class);
-        verify(productRepository, atLeastOnce()).save(productCaptor.capture());
-        Product savedProduct = productCaptor.getValue();
-        assertEquals(60.0, savedProduct.getCurrentStock(), 0.001);
+        verify(stockLedgerJdbcRepository, times(1)).adjustProductStock(productDeltaCaptor.capture());
+        assertEquals(60.0, testProduct.getCurrentStock() + productDeltaCaptor.getValue().get(1L), 0.001);
 
         // Verify stock movement was created
-        verify(stockMovementRepository, times(1)).save(any(StockMovement.class));
+        verify(stockMovementRepository, times(1)).saveAll(movementListCaptor.capture());
+        assertEquals(1, movementListCaptor.getValue().size());
+        assertEquals(-40.0, movementListCaptor.getValue().get(0).getQuantity(), 0.001);
+
+        // Coût FIFO enregistré au moment de la consommation : 40 x 15,50
+        assertEquals(0, new BigDecimal("-620").compareTo(movementListCaptor.getValue().get(0).getCost()));
+        assertEquals(0, new BigDecimal("620").compareTo(item.getCost()));
+        verify(exitCostRollupRepository, times(1)).addValidated(List.of(exitSlip));
         System.out.println("test finished");
     }
 
@@ -226,11 +302,9 @@ public class ExitSlipServiceTest {
         exitSlip.setItems(List.of(item));
 
         // Mock repository behaviors
-        when(exitSlipRepository.findById(2L)).thenReturn(Optional.of(exitSlip));
-        when(stockSlotRepository.findByProductAndAvailableQuantityGreaterThanOrderByEntryDateAsc(testProduct, 0.0))
+        when(exitSlipRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(exitSlip));
+        when(stockSlotRepository.lockAvailableByProductIds(anyCollection()))
                 .thenReturn(List.of(slot1, slot2, slot3));
-        when(stockSlotRepository.save(any(StockSlot.class))).thenAnswer(invocation -> invocation.getArgument(0));
-        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(exitSlipRepository.save(any(ExitSlip.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(exitSlipMapper.toResponse(any(ExitSlip.class))).thenAnswer(invocation -> {
             ExitSlip es = invocation.getArgument(0);
@@ -243,22 +317,22 @@ public class ExitSlipServiceTest {
         // Assert: Check status is validated
         assertEquals(ExitSlipStatus.VALIDATED, validatedSlip.getStatus());
 
-        // Assert: Verify FIFO consumption - slot1 fully consumed (30), slot2 partially (30 out of 50)
-        assertEquals(0.0, slot1.getAvailableQuantity(), 0.001, "First slot should be fully consumed");
-        assertEquals(20.0, slot2.getAvailableQuantity(), 0.001, "Second slot should have 20 remaining");
-        assertEquals(20.0, slot3.getAvailableQuantity(), 0.001, "Third slot should be untouched");
-        //System.out.println(slot1.getAvailableQuantity());
-        //System.out.println(slot2.getAvailableQuantity());
-        //System.out.println(slot3.getAvailableQuantity());
+        // Assert: Verify FIFO consumption - slot1 fully consumed (30), slot2 partially (30 out of 50), slot3 untouched
+        verify(stockLedgerJdbcRepository, times(1)).debitSlots(debitCaptor.capture());
+        List<SlotDebit> debits = debitCaptor.getValue();
+        assertEquals(2, debits.size(), "Only the two oldest slots should be debited");
+        assertEquals(1L, debits.get(0).slotId());
+        assertEquals(0.0, slot1.getAvailableQuantity() - debits.get(0).quantity(), 0.001, "First slot should be fully consumed");
+        assertEquals(2L, debits.get(1).slotId());
+        assertEquals(20.0, slot2.getAvailableQuantity() - debits.get(1).quantity(), 0.001, "Second slot should have 20 remaining");
 
         // Verify product current stock is reduced to 40
-        ArgumentCaptor<Product> productCaptor = ArgumentCaptor.forClass(Product.class);
-        verify(productRepository, atLeastOnce()).save(productCaptor.capture());
-        Product savedProduct = productCaptor.getValue();
-        assertEquals(40.0, savedProduct.getCurrentStock(), 0.001);
+        verify(stockLedgerJdbcRepository, times(1)).adjustProductStock(productDeltaCaptor.capture());
+        assertEquals(40.0, testProduct.getCurrentStock() + productDeltaCaptor.getValue().get(1L), 0.001);
 
         // Verify stock movements were created (2 movements: from slot1 and slot2)
-        verify(stockMovementRepository, times(2)).save(any(StockMovement.class));
+        verify(stockMovementRepository, times(1)).saveAll(movementListCaptor.capture());
+        assertEquals(2, movementListCaptor.getValue().size());
     }
 
     @Test
@@ -298,8 +372,8 @@ public class ExitSlipServiceTest {
         exitSlip.setItems(List.of(item));
 
         // Mock repository behaviors
-        when(exitSlipRepository.findById(3L)).thenReturn(Optional.of(exitSlip));
-        when(stockSlotRepository.findByProductAndAvailableQuantityGreaterThanOrderByEntryDateAsc(testProduct, 0.0))
+        when(exitSlipRepository.findByIdForUpdate(3L)).thenReturn(Optional.of(exitSlip));
+        when(stockSlotRepository.lockAvailableByProductIds(anyCollection()))
                 .thenReturn(List.of(slot));
 
         // Act & Assert: Validation should throw an exception
@@ -315,12 +389,11 @@ public class ExitSlipServiceTest {
         }
         System.out.println("3- " + slot.getAvailableQuantity());
 
-        // Assert: Verify no stock was saved (transaction should rollback)
-        verify(stockSlotRepository, never()).save(any(StockSlot.class));
-        verify(productRepository, never()).save(any(Product.class));
-        verify(stockMovementRepository, never()).save(any(StockMovement.class));
+        // Assert: Verify nothing was written (the plan fails before any batch is sent)
+        verifyNoInteractions(stockLedgerJdbcRepository);
+        verify(exitSlipRepository, never()).save(any(ExitSlip.class));
 
-        // Slot and product quantities remain unchanged (verified by not calling save)
+        // Slot and product quantities remain unchanged
         assertEquals(50.0, slot.getAvailableQuantity(), 0.001);
         assertEquals(50.0, testProduct.getCurrentStock(), 0.001);
         System.out.println("4- " + slot.getAvailableQuantity());
@@ -371,11 +444,9 @@ public class ExitSlipServiceTest {
         exitSlip.setItems(List.of(item));
 
         // Mock repository behaviors
-        when(exitSlipRepository.findById(4L)).thenReturn(Optional.of(exitSlip));
-        when(stockSlotRepository.findByProductAndAvailableQuantityGreaterThanOrderByEntryDateAsc(testProduct, 0.0))
+        when(exitSlipRepository.findByIdForUpdate(4L)).thenReturn(Optional.of(exitSlip));
+        when(stockSlotRepository.lockAvailableByProductIds(anyCollection()))
                 .thenReturn(List.of(slot1, slot2));
-        when(stockSlotRepository.save(any(StockSlot.class))).thenAnswer(invocation -> invocation.getArgument(0));
-        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(exitSlipRepository.save(any(ExitSlip.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(exitSlipMapper.toResponse(any(ExitSlip.class))).thenAnswer(invocation -> {
             ExitSlip es = invocation.getArgument(0);
@@ -389,20 +460,183 @@ public class ExitSlipServiceTest {
         assertEquals(ExitSlipStatus.VALIDATED, validatedSlip.getStatus());
 
         // Assert: Both slots should be fully exhausted
-        assertEquals(0.0, slot1.getAvailableQuantity(), 0.001, "First slot should be fully exhausted");
-        assertEquals(0.0, slot2.getAvailableQuantity(), 0.001, "Second slot should be fully exhausted");
+        verify(stockLedgerJdbcRepository, times(1)).debitSlots(debitCaptor.capture());
+        List<SlotDebit> debits = debitCaptor.getValue();
+        assertEquals(2, debits.size());
+        assertEquals(0.0, slot1.getAvailableQuantity() - debits.get(0).quantity(), 0.001, "First slot should be fully exhausted");
+        assertEquals(0.0, slot2.getAvailableQuantity() - debits.get(1).quantity(), 0.001, "Second slot should be fully exhausted");
 
         // Verify product current stock is reduced to 0
-        ArgumentCaptor<Product> productCaptor = ArgumentCaptor.forClass(Product.class);
-        verify(productRepository, atLeastOnce()).save(productCaptor.capture());
-        Product savedProduct = productCaptor.getValue();
-        assertEquals(0.0, savedProduct.getCurrentStock(), 0.001);
+        verify(stockLedgerJdbcRepository, times(1)).adjustProductStock(productDeltaCaptor.capture());
+        assertEquals(0.0, testProduct.getCurrentStock() + productDeltaCaptor.getValue().get(1L), 0.001);
 
         // Verify stock movements were created (2 movements: from both slots)
-        verify(stockMovementRepository, times(2)).save(any(StockMovement.class));
+        verify(stockMovementRepository, times(1)).saveAll(movementListCaptor.capture());
+        assertEquals(2, movementListCaptor.getValue().size());
         System.out.println(testProduct.getCurrentStock());
     }
 
+    @Test
+    void testWithdraw_RoundTripsDoNotGrowWithSlotCount() {
+        // Arrange: 20 slip lines over 10 products, each product spread over 15 small slots
+        ExitSlip exitSlip = createMockExitSlip(5L, ExitSlipStatus.DRAFT);
+        List<ExitSlipItem> items = new ArrayList<>();
+        List<StockSlot> slots = new ArrayList<>();
+        long slotId = 1;
+        for (long productId = 1; productId <= 10; productId++) {
+            Product product = new Product();
+            product.setId(productId);
+            product.setName("Product " + productId);
+            product.setCurrentStock(150.0);
+            for (int i = 0; i < 15; i++) {
+                StockSlot slot = new StockSlot();
+                slot.setId(slotId++);
+                slot.setProduct(product);
+                slot.setQuantity(10.0);
+                slot.setAvailableQuantity(10.0);
+                slot.setUnitPrice(10.0);
+                slot.setEntryDate(LocalDateTime.now().minusDays(30 - i));
+                slots.add(slot);
+            }
+            for (int line = 0; line < 2; line++) {
+                ExitSlipItem item = new ExitSlipItem();
+                item.setProduct(product);
+                item.setRequestedQuantity(BigDecimal.valueOf(55.0));
+                item.setExitSlip(exitSlip);
+                items.add(item);
+            }
+        }
+        exitSlip.setItems(items);
+
+        when(exitSlipRepository.findByIdForUpdate(5L)).thenReturn(Optional.of(exitSlip));
+        when(stockSlotRepository.lockAvailableByProductIds(anyCollection())).thenReturn(slots);
+        when(exitSlipRepository.save(any(ExitSlip.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(exitSlipMapper.toResponse(any(ExitSlip.class))).thenAnswer(invocation -> createMockExitSlipResponse(invocation.getArgument(0)));
+
+        // Act
+        exitSlipService.validateExitSlip(5L);
+
+        // Assert: one lock, one read and one batch per kind of write, whatever the number of slots consumed
+        verify(productRepository, times(1)).lockAllByIdInOrder(anyCollection());
+        verify(stockSlotRepository, times(1)).lockAvailableByProductIds(anyCollection());
+        verify(stockLedgerJdbcRepository, times(1)).debitSlots(debitCaptor.capture());
+        verify(stockMovementRepository, times(1)).saveAll(anyList());
+        verify(stockLedgerJdbcRepository, times(1)).adjustProductStock(productDeltaCaptor.capture());
+
+        // 2 x 55 units per product over 10-unit slots: the second line starts in the slot the first one split
+        assertEquals(120, debitCaptor.getValue().size());
+        assertEquals(1100.0, debitCaptor.getValue().stream().mapToDouble(SlotDebit::quantity).sum(), 0.001);
+        assertEquals(10, productDeltaCaptor.getValue().size());
+        productDeltaCaptor.getValue().values().forEach(delta -> assertEquals(-110.0, delta, 0.001));
+    }
+
+    @Test
+    void testValidateBatch_OneAllocationPassAndResultPerSlip() {
+        // Arrange: 20 unités sur deux lots, trois brouillons qui se partagent le produit
+        Product product = new Product();
+        product.setId(1L);
+        product.setName("Fil coton");
+        product.setCurrentStock(20.0);
+        List<StockSlot> slots = new ArrayList<>();
+        for (long slotId = 1; slotId <= 2; slotId++) {
+            StockSlot slot = new StockSlot();
+            slot.setId(slotId);
+            slot.setProduct(product);
+            slot.setQuantity(10.0);
+            slot.setAvailableQuantity(10.0);
+            slot.setUnitPrice(10.0);
+            slot.setEntryDate(LocalDateTime.now().minusDays(10 - slotId));
+            slots.add(slot);
+        }
+        ExitSlip first = draftWithItem(10L, product, 8.0);
+        ExitSlip tooLarge = draftWithItem(11L, product, 15.0);
+        ExitSlip last = draftWithItem(12L, product, 12.0);
+        ExitSlip cancelled = createMockExitSlip(13L, ExitSlipStatus.CANCELLED);
+
+        when(exitSlipRepository.findAllByIdForUpdate(anyCollection())).thenReturn(List.of(first, tooLarge, last, cancelled));
+        when(stockSlotRepository.lockAvailableByProductIds(anyCollection())).thenReturn(slots);
+
+        // Act: ordre de la requête conservé dans la réponse, traitement par id croissant
+        BatchValidationResponse response = exitSlipService.validateExitSlips(List.of(12L, 14L, 10L, 13L, 11L));
+
+        // Assert: un seul verrouillage et une seule écriture groupée pour tout le lot
+        verify(productRepository, times(1)).lockAllByIdInOrder(anyCollection());
+        verify(stockSlotRepository, times(1)).lockAvailableByProductIds(anyCollection());
+        verify(stockLedgerJdbcRepository, times(1)).debitSlots(debitCaptor.capture());
+        assertEquals(20.0, debitCaptor.getValue().stream().mapToDouble(SlotDebit::quantity).sum(), 0.001);
+
+        assertEquals(2, response.getValidated());
+        assertEquals(3, response.getFailed());
+        assertEquals(List.of(12L, 14L, 10L, 13L, 11L),
+                response.getResults().stream().map(BatchValidationResponse.Result::getSlipId).toList());
+        assertEquals(List.of(true, false, true, false, false),
+                response.getResults().stream().map(BatchValidationResponse.Result::isSuccess).toList());
+        assertTrue(response.getResults().get(1).getError().contains("not found"));
+        assertTrue(response.getResults().get(4).getError().contains("Insufficient stock"));
+
+        // Le bon refusé reste en brouillon et garde sa réservation
+        assertEquals(ExitSlipStatus.VALIDATED, first.getStatus());
+        assertEquals(ExitSlipStatus.DRAFT, tooLarge.getStatus());
+        verify(outboxWriter, times(2)).exitSlipValidated(any(ExitSlip.class), anyMap());
+        verify(stockReservationTable).releaseAfterCommit(10L);
+        verify(stockReservationTable).releaseAfterCommit(12L);
+        verify(stockReservationTable, never()).releaseAfterCommit(11L);
+    }
+
+    @Test
+    void testAllocationPreview_ReadOnlyPerLotCostAndCached() {
+        // Arrange: deux lots à 10 et 12, le brouillon demande 15 unités
+        Product product = new Product();
+        product.setId(1L);
+        product.setName("Fil coton");
+        List<StockSlot> slots = new ArrayList<>();
+        for (long slotId = 1; slotId <= 2; slotId++) {
+            StockSlot slot = new StockSlot();
+            slot.setId(slotId);
+            slot.setLotNumber("LOT-" + slotId);
+            slot.setProduct(product);
+            slot.setQuantity(10.0);
+            slot.setAvailableQuantity(10.0);
+            slot.setUnitPrice(slotId == 1 ? 10.0 : 12.0);
+            slot.setEntryDate(LocalDateTime.now().minusDays(10 - slotId));
+            slots.add(slot);
+        }
+        ExitSlip draft = draftWithItem(20L, product, 15.0);
+        when(exitSlipRepository.findById(20L)).thenReturn(Optional.of(draft));
+        when(stockSlotRepository.findAvailableByProductIds(anyCollection())).thenReturn(slots);
+
+        // Act
+        AllocationPreviewResponse preview = exitSlipService.previewAllocation(20L);
+
+        // Assert: 10 x 10 + 5 x 12, sans verrou ni écriture
+        assertTrue(preview.isFeasible());
+        assertEquals(List.of("LOT-1", "LOT-2"),
+                preview.getLots().stream().map(AllocationPreviewResponse.Lot::getLotNumber).toList());
+        assertEquals(5.0, preview.getLots().get(1).getQuantity(), 0.001);
+        assertEquals(0, new BigDecimal("160").compareTo(preview.getTotalCost()));
+        verify(productRepository, never()).lockAllByIdInOrder(anyCollection());
+        verify(stockSlotRepository, never()).lockAvailableByProductIds(anyCollection());
+        verify(stockLedgerJdbcRepository, never()).debitSlots(anyList());
+
+        // Deuxième appel servi par le cache, tant que le produit n'a pas changé
+        assertSame(preview, exitSlipService.previewAllocation(20L));
+        verify(stockSlotRepository, times(1)).findAvailableByProductIds(anyCollection());
+
+        when(productCatalogCache.changedSince(anyCollection(), anyLong())).thenReturn(true);
+        assertNotSame(preview, exitSlipService.previewAllocation(20L));
+        verify(stockSlotRepository, times(2)).findAvailableByProductIds(anyCollection());
+    }
+
+    private ExitSlip draftWithItem(Long id, Product product, double quantity) {
+        ExitSlip exitSlip = createMockExitSlip(id, ExitSlipStatus.DRAFT);
+        ExitSlipItem item = new ExitSlipItem();
+        item.setExitSlip(exitSlip);
+        item.setProduct(product);
+        item.setRequestedQuantity(BigDecimal.valueOf(quantity));
+        exitSlip.getItems().add(item);
+        return exitSlip;
+    }
+
     // Helper methods to create mock objects
     private ExitSlip createMockExitSlip(Long id, ExitSlipStatus status) {
         ExitSlip exitSlip = new ExitSlip();
@@ -487,7 +721,7 @@ public class ExitSlipServiceTest {
         // Mock repository behaviors
         when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
         when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
-        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(documentNumberService.nextLotNumbers(2)).thenReturn(List.of("LOT-2025-001", "LOT-2025-002"));
         when(stockSlotRepository.saveAll(anyList())).thenAnswer(invocation -> {
             List<StockSlot> slots = invocation.getArgument(0);
             // Simulate @PrePersist (dateEntry) behavior and assign IDs
@@ -501,12 +735,6 @@ public class ExitSlipServiceTest {
             }
             return slots;
         });
-        when(stockMovementRepository.save(any(StockMovement.class))).thenAnswer(invocation -> {
-            StockMovement movement = invocation.getArgument(0);
-            movement.setId(1L);
-            return movement;
-        });
-
         // Act: Receive the order (process reception)
         orderService.receiveOrder(1L);
 
@@ -542,23 +770,29 @@ public class ExitSlipServiceTest {
         assertEquals(order, createdSlot2.getOrder(), "Slot 2 should reference the order");
         assertNotNull(createdSlot2.getEntryDate(), "Slot 2 should have an entry date");
 
-        // Assert: Verify product stocks were updated (2 products)
-        ArgumentCaptor<Product> productCaptor = ArgumentCaptor.forClass(Product.class);
-        verify(productRepository, times(2)).save(productCaptor.capture());
+        assertEquals("LOT-2025-001", createdSlot1.getLotNumber());
+        assertEquals("LOT-2025-002", createdSlot2.getLotNumber());
 
-        List<Product> savedProducts = productCaptor.getAllValues();
-
-        savedProducts.forEach(System.out::println);
+        // Assert: Verify product stocks were updated (2 products, one relative update each)
+        verify(stockLedgerJdbcRepository, times(1)).adjustProductStock(productDeltaCaptor.capture());
+        Map<Long, Double> deltas = productDeltaCaptor.getValue();
 
         // Product 1 stock should increase from 0 to 50
-        assertEquals(50.0, savedProducts.get(0).getCurrentStock(), 0.001);
+        assertEquals(50.0, product1.getCurrentStock() + deltas.get(1L), 0.001);
         // Product 2 stock should increase from 10 to 30
-        assertEquals(30.0, savedProducts.get(1).getCurrentStock(), 0.001);
+        assertEquals(30.0, product2.getCurrentStock() + deltas.get(2L), 0.001);
+        verify(productRepository, never()).save(any(Product.class));
+
+        // Valorisation: un crédit par lot, au prix du lot
+        verify(stockLedgerJdbcRepository, times(1)).creditValuations(valuationCreditCaptor.capture());
+        List<ValuationCredit> credits = valuationCreditCaptor.getValue();
+        assertEquals(2, credits.size());
+        assertEquals(50.0 * 50.0, credits.get(0).quantity() * credits.get(0).unitPrice(), 0.001);
+        assertEquals(20.0 * 75.0, credits.get(1).quantity() * credits.get(1).unitPrice(), 0.001);
 
         // Assert: Verify stock movements were created (2 movements of type IN)
-        ArgumentCaptor<StockMovement> movementCaptor = ArgumentCaptor.forClass(StockMovement.class);
-        verify(stockMovementRepository, times(2)).save(movementCaptor.capture());
-        List<StockMovement> savedMovements = movementCaptor.getAllValues();
+        verify(stockMovementRepository, times(1)).saveAll(movementListCaptor.capture());
+        List<StockMovement> savedMovements = movementListCaptor.getValue();
 
         // Verify first movement
         StockMovement movement1 = savedMovements.get(0);
@@ -582,10 +816,55 @@ public class ExitSlipServiceTest {
 
     }
 
+    @Test
+    void testProcessReception_RoundTripsDoNotGrowWithLineCount() {
+        // Arrange: a 500-line purchase order spread over 50 products
+        Order order = new Order();
+        order.setId(2L);
+        order.setStatus(Order.OrderStatus.pending);
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Product product = new Product();
+            product.setId((long) (i % 50 + 1));
+            product.setCurrentStock(0.0);
+
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setProduct(product);
+            item.setQuantity(2.0);
+            item.setUnitPrice(10.0);
+            items.add(item);
+        }
+        order.setItems(items);
+
+        List<String> lotNumbers = new ArrayList<>();
+        for (int i = 1; i <= 500; i++) {
+            lotNumbers.add(String.format("LOT-2025-%03d", i));
+        }
+        when(orderRepository.findById(2L)).thenReturn(Optional.of(order));
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(documentNumberService.nextLotNumbers(500)).thenReturn(lotNumbers);
+
+        // Act
+        orderService.receiveOrder(2L);
+
+        // Assert: one call per kind of write, whatever the number of lines
+        verify(documentNumberService, times(1)).nextLotNumbers(500);
+        verify(stockSlotRepository, times(1)).saveAll(anyList());
+        verify(stockMovementRepository, times(1)).saveAll(movementListCaptor.capture());
+        verify(stockLedgerJdbcRepository, times(1)).adjustProductStock(productDeltaCaptor.capture());
+        verify(productRepository, never()).save(any(Product.class));
+        verify(stockMovementRepository, never()).save(any(StockMovement.class));
+
+        assertEquals(500, movementListCaptor.getValue().size());
+        assertEquals(50, productDeltaCaptor.getValue().size());
+        productDeltaCaptor.getValue().values().forEach(delta -> assertEquals(20.0, delta, 0.001));
+    }
+
     // Tâche 1.1.C: Calcul de Valorisation
     @Test
     void testCalculateStockValue_withMultiplePrices() {
-        // Arrange: Create a product with multiple stock slots at different prices
+        // Arrange: Create a product whose slots were received at different prices
         Product testProduct = new Product();
         testProduct.setId(1L);
         testProduct.setReference("TEST-001");
@@ -597,52 +876,24 @@ public class ExitSlipServiceTest {
         testProduct.setReorderPoint(10.0);
         testProduct.setCurrentStock(100.0);
 
-        // Create 3 stock slots with different quantities and prices
-        StockSlot slot1 = new StockSlot();
-        slot1.setId(1L);
-        slot1.setProduct(testProduct);
-        slot1.setQuantity(30.0);
-        slot1.setAvailableQuantity(30.0);
-        slot1.setUnitPrice(100.0);
-        slot1.setEntryDate(LocalDateTime.now().minusDays(3));
-
-        StockSlot slot2 = new StockSlot();
-        slot2.setId(2L);
-        slot2.setProduct(testProduct);
-        slot2.setQuantity(50.0);
-        slot2.setAvailableQuantity(50.0);
-        slot2.setUnitPrice(105.0);
-        slot2.setEntryDate(LocalDateTime.now().minusDays(2));
-
-        StockSlot slot3 = new StockSlot();
-        slot3.setId(3L);
-        slot3.setProduct(testProduct);
-        slot3.setQuantity(20.0);
-        slot3.setAvailableQuantity(20.0);
-        slot3.setUnitPrice(110.0);
-        slot3.setEntryDate(LocalDateTime.now().minusDays(1));
-
-        // Expected total value: 3,000 + 5,250 + 2,200 = 10,450
+        // Slots of 30 @ 100, 50 @ 105 and 20 @ 110: 3,000 + 5,250 + 2,200 = 10,450,
+        // already accumulated in the running valuation by the receipts
         double expectedValue = (30.0 * 100.0) + (50.0 * 105.0) + (20.0 * 110.0);
-        System.out.println("Expected Stock Value: " + expectedValue);
 
         // Mock repository behaviors
         when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
-        when(stockSlotRepository.findByProductAndAvailableQuantityGreaterThanOrderByEntryDateAsc(testProduct, 0.0))
-                .thenReturn(List.of(slot1, slot2, slot3));
+        when(stockValuationRepository.productValue(1L)).thenReturn(new BigDecimal("10450.0000"));
 
         // Act: Calculate stock value
         double actualValue = exitSlipService.calculateStockValue(1L);
-        System.out.println("Calculated Stock Value: " + actualValue);
 
-        // Assert: Verify the total value is correctly calculated
+        // Assert: Verify the total value is read from the ledger
         assertEquals(expectedValue, actualValue, 0.01, "Stock value should be sum of (quantity × price) for all slots");
         assertEquals(10450.0, actualValue, 0.01, "Stock value should be 10,450");
 
-        // Verify repository was called
-        verify(productRepository, times(1)).findById(1L);
-        verify(stockSlotRepository, times(1))
-                .findByProductAndAvailableQuantityGreaterThanOrderByEntryDateAsc(testProduct, 0.0);
+        // Valorisation lue dans le grand livre, sans charger les lots
+        verify(stockValuationRepository, times(1)).productValue(1L);
+        verifyNoInteractions(stockSlotRepository);
     }
 
     // Tâche 1.2: Tests des Transitions de Statut
@@ -680,11 +931,11 @@ public class ExitSlipServiceTest {
         exitSlip.setItems(List.of(item));
 
         // Mock repositories
-        when(exitSlipRepository.findById(1L)).thenReturn(Optional.of(exitSlip));
-        when(stockSlotRepository.findByProductAndAvailableQuantityGreaterThanOrderByEntryDateAsc(product, 0.0))
+        when(exitSlipRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(exitSlip));
+        when(stockSlotRepository.lockAvailableByProductIds(anyCollection()))
                 .thenReturn(List.of(slot));
-        when(stockSlotRepository.save(any(StockSlot.class))).thenAnswer(inv -> inv.getArgument(0));
-        when(productRepository.save(any(Product.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(productRepository.getReferenceById(1L)).thenReturn(product);
+        when(stockSlotRepository.getReferenceById(1L)).thenReturn(slot);
         when(exitSlipRepository.save(any(ExitSlip.class))).thenAnswer(inv -> inv.getArgument(0));
         when(exitSlipMapper.toResponse(any(ExitSlip.class))).thenAnswer(inv -> createMockExitSlipResponse(inv.getArgument(0)));
 
@@ -698,23 +949,31 @@ public class ExitSlipServiceTest {
         assertNotNull(exitSlip.getValidatedAt(), "Validation timestamp should be set");
         assertNotNull(exitSlip.getValidatedBy(), "Validation user should be set");
         assertEquals("SYSTEM", exitSlip.getValidatedBy(), "Validated by should be SYSTEM");
+        assertEquals(BigDecimal.valueOf(30.0), item.getActualQuantity(), "Actual quantity should be recorded");
 
-        // Assert 3: Stock movements created
-        ArgumentCaptor<StockMovement> movementCaptor = ArgumentCaptor.forClass(StockMovement.class);
-        verify(stockMovementRepository, times(1)).save(movementCaptor.capture());
-        StockMovement movement = movementCaptor.getValue();
-        assertEquals(StockMovement.Type.out, movement.getType(), "Movement type should be OUT");
-        assertEquals(-30.0, movement.getQuantity(), 0.001, "Movement quantity should be negative");
-        assertEquals(product, movement.getProduct(), "Movement should reference product");
-        assertEquals(slot, movement.getStockSlot(), "Movement should reference stock slot");
+        // Assert 3: Stock movements created (one OUT row per debited slot)
+        verify(stockMovementRepository, times(1)).saveAll(movementListCaptor.capture());
+        List<StockMovement> movements = movementListCaptor.getValue();
+        assertEquals(1, movements.size());
+        assertEquals(StockMovement.Type.out, movements.get(0).getType());
+        assertEquals(-30.0, movements.get(0).getQuantity(), 0.001, "Movement should take 30 units");
+        assertEquals(product, movements.get(0).getProduct(), "Movement should reference product");
+        assertEquals(slot, movements.get(0).getStockSlot(), "Movement should reference stock slot");
 
         // Assert 4: Stock slot quantities updated
-        assertEquals(70.0, slot.getAvailableQuantity(), 0.001, "Slot available quantity should be reduced");
-        verify(stockSlotRepository, times(1)).save(slot);
+        verify(stockLedgerJdbcRepository, times(1)).debitSlots(debitCaptor.capture());
+        List<SlotDebit> debits = debitCaptor.getValue();
+        assertEquals(slot.getId(), debits.get(0).slotId());
+        assertEquals(70.0, slot.getAvailableQuantity() - debits.get(0).quantity(), 0.001, "Slot available quantity should be reduced");
 
         // Assert 5: Product stock updated
-        ArgumentCaptor<Product> productCaptor = ArgumentCaptor.forClass(Product.class);
-        verify(productRepository, times(1)).save(productCaptor.capture());
-        assertEquals(70.0, productCaptor.getValue().getCurrentStock(), 0.001, "Product stock should be reduced");
+        verify(stockLedgerJdbcRepository, times(1)).adjustProductStock(productDeltaCaptor.capture());
+        assertEquals(70.0, product.getCurrentStock() + productDeltaCaptor.getValue().get(1L), 0.001, "Product stock should be reduced");
+    }
+
+    static AllocationStrategyResolver allocationStrategyResolver(Map<String, AllocationMethod> methodByCategory) {
+        return new AllocationStrategyResolver(List.of(new FifoAllocationStrategy(), new FefoAllocationStrategy(),
+                new LifoAllocationStrategy(), new WeightedAverageAllocationStrategy()),
+                AllocationMethod.FIFO, methodByCategory);
     }
 }
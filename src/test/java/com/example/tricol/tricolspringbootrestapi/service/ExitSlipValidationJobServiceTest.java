@@ -0,0 +1,186 @@
+package com.example.tricol.tricolspringbootrestapi.service;
+
+import com.example.tricol.tricolspringbootrestapi.dto.response.ValidationJobResponse;
+import com.example.tricol.tricolspringbootrestapi.enums.ExitSlipStatus;
+import com.example.tricol.tricolspringbootrestapi.enums.ValidationJobStatus;
+import com.example.tricol.tricolspringbootrestapi.exception.ConcurrentStockUpdateException;
+import com.example.tricol.tricolspringbootrestapi.exception.InsufficientStockException;
+import com.example.tricol.tricolspringbootrestapi.model.ExitSlip;
+import com.example.tricol.tricolspringbootrestapi.repository.ExitSlipRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.ValidationJobJdbcRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.ValidationJobJdbcRepository.Claim;
+import com.example.tricol.tricolspringbootrestapi.service.impl.ExitSlipValidationJobServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/*
+    File de validation asynchrone avec des dépôts et un gestionnaire de transactions simulés.
+ */
+public class ExitSlipValidationJobServiceTest {
+
+    private final ExitSlipRepository exitSlipRepository = mock(ExitSlipRepository.class);
+    private final ValidationJobJdbcRepository validationJobRepository = mock(ValidationJobJdbcRepository.class);
+    private final ExitSlipService exitSlipService = mock(ExitSlipService.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ExitSlipValidationJobServiceImpl jobService;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        jobService = new ExitSlipValidationJobServiceImpl(exitSlipRepository, validationJobRepository, exitSlipService,
+                transactionManager, meterRegistry, 2, 100, 3, Duration.ofMinutes(5),
+                Duration.ofSeconds(10), Duration.ofDays(7));
+    }
+
+    @AfterEach
+    void stop() {
+        jobService.stop();
+    }
+
+    @Test
+    void testClaimedJob_ValidatedAndMarkedSucceeded() {
+        Claim claim = new Claim(1L, 10L, 1);
+        givenClaims(claim);
+        when(validationJobRepository.finish(claim, ValidationJobStatus.SUCCEEDED, null)).thenReturn(true);
+
+        jobService.start();
+        jobService.wakeUp();
+
+        verify(validationJobRepository, timeout(2000)).finish(claim, ValidationJobStatus.SUCCEEDED, null);
+        verify(exitSlipService).validateExitSlip(10L);
+    }
+
+    @Test
+    void testLostLease_RolledBackAndCountedSuperseded() throws InterruptedException {
+        Claim claim = new Claim(1L, 10L, 1);
+        givenClaims(claim);
+        // Le bail a expiré et le job a été repris : la validation de ce worker est annulée
+        when(validationJobRepository.finish(claim, ValidationJobStatus.SUCCEEDED, null)).thenReturn(false);
+
+        jobService.start();
+        jobService.wakeUp();
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+        while (meterRegistry.find("exit.slip.validation.jobs").tag("outcome", "superseded").timer() == null) {
+            assertTrue(System.nanoTime() < deadline, "No superseded outcome recorded");
+            Thread.sleep(10);
+        }
+        assertNull(meterRegistry.find("exit.slip.validation.jobs").tag("outcome", "succeeded").timer());
+        // Seule la transaction de validation est rendue au gestionnaire en rollback-only
+        ArgumentCaptor<TransactionStatus> committed = ArgumentCaptor.forClass(TransactionStatus.class);
+        verify(transactionManager, atLeastOnce()).commit(committed.capture());
+        assertEquals(1, committed.getAllValues().stream().filter(TransactionStatus::isRollbackOnly).count());
+    }
+
+    @Test
+    void testLockConflict_RequeuedWhileAttemptsRemain() {
+        Claim claim = new Claim(1L, 10L, 1);
+        givenClaims(claim);
+        when(exitSlipService.validateExitSlip(10L))
+                .thenThrow(new ConcurrentStockUpdateException("Stock slot was consumed concurrently, please retry"));
+
+        jobService.start();
+        jobService.wakeUp();
+
+        verify(validationJobRepository, timeout(2000)).requeue(claim);
+        verify(validationJobRepository, never()).finish(eq(claim), eq(ValidationJobStatus.FAILED), any());
+    }
+
+    @Test
+    void testInsufficientStock_JobFailedWithReason() {
+        Claim claim = new Claim(1L, 10L, 1);
+        givenClaims(claim);
+        when(exitSlipService.validateExitSlip(10L))
+                .thenThrow(new InsufficientStockException("Insufficient stock for product: Fil coton"));
+
+        jobService.start();
+        jobService.wakeUp();
+
+        verify(validationJobRepository, timeout(2000))
+                .finish(claim, ValidationJobStatus.FAILED, "Insufficient stock for product: Fil coton");
+        verify(validationJobRepository, never()).requeue(any());
+    }
+
+    @Test
+    void testLongValidation_LeaseRenewedWhileRunning() throws InterruptedException {
+        Claim claim = new Claim(1L, 10L, 1);
+        givenClaims(claim);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(exitSlipService.validateExitSlip(10L)).thenAnswer(invocation -> {
+            running.countDown();
+            release.await();
+            return null;
+        });
+        when(validationJobRepository.finish(claim, ValidationJobStatus.SUCCEEDED, null)).thenReturn(true);
+
+        jobService.start();
+        jobService.wakeUp();
+        assertTrue(running.await(2, TimeUnit.SECONDS));
+
+        // Le bail du job en cours est prolongé, rien n'est renouvelé une fois le job terminé
+        jobService.renewLeases();
+        verify(validationJobRepository).renewLeases(List.of(claim), Duration.ofMinutes(5));
+        release.countDown();
+        verify(validationJobRepository, timeout(2000)).finish(claim, ValidationJobStatus.SUCCEEDED, null);
+        Thread.sleep(50);
+        jobService.renewLeases();
+        verify(validationJobRepository, times(1)).renewLeases(anyCollection(), any());
+    }
+
+    @Test
+    void testExpiredLeases_ExhaustedJobsFailedBeforeRequeue() {
+        when(validationJobRepository.failExpiredLeases(eq(3), anyString())).thenReturn(1);
+
+        jobService.requeueExpiredLeases();
+
+        // Les jobs à leur dernière tentative échouent, les autres repartent dans la file
+        InOrder inOrder = inOrder(validationJobRepository);
+        inOrder.verify(validationJobRepository).failExpiredLeases(eq(3), anyString());
+        inOrder.verify(validationJobRepository).requeueExpiredLeases();
+    }
+
+    @Test
+    void testSubmit_RetriedRequestGetsQueuedJob() {
+        ExitSlip exitSlip = new ExitSlip();
+        exitSlip.setId(10L);
+        exitSlip.setStatus(ExitSlipStatus.DRAFT);
+        ValidationJobResponse queued = ValidationJobResponse.builder()
+                .jobId(1L).exitSlipId(10L).status(ValidationJobStatus.PENDING).build();
+        when(exitSlipRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(exitSlip));
+        when(validationJobRepository.findUnfinishedBySlip(10L)).thenReturn(Optional.of(queued));
+
+        // Le client a expiré puis relance : pas de second job pour le même bon
+        assertSame(queued, jobService.submitValidation(10L));
+        verify(validationJobRepository, never()).insert(anyLong(), anyCollection());
+    }
+
+    // Les jobs ne sont réclamés qu'une fois
+    private void givenClaims(Claim... claims) {
+        AtomicBoolean claimed = new AtomicBoolean();
+        when(validationJobRepository.claim(anyInt(), any()))
+                .thenAnswer(invocation -> claimed.getAndSet(true) ? List.of() : List.of(claims));
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.tricol.tricolspringbootrestapi.service;
+
+import com.example.tricol.tricolspringbootrestapi.enums.AllocationMethod;
+import com.example.tricol.tricolspringbootrestapi.model.ExitSlipItem;
+import com.example.tricol.tricolspringbootrestapi.model.Product;
+import com.example.tricol.tricolspringbootrestapi.model.StockSlot;
+import com.example.tricol.tricolspringbootrestapi.repository.ProductRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.StockLedgerJdbcRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.StockLedgerJdbcRepository.SlotDebit;
+import com.example.tricol.tricolspringbootrestapi.repository.StockMovementRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.StockSlotRepository;
+import com.example.tricol.tricolspringbootrestapi.service.impl.ProductCatalogCache;
+import com.example.tricol.tricolspringbootrestapi.service.impl.StockConsumptionEngine;
+import com.example.tricol.tricolspringbootrestapi.service.impl.StockConsumptionEngine.ConsumptionPlan;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/*
+    Ordre de consommation des lots selon la stratégie de la catégorie du produit.
+ */
+@ExtendWith(MockitoExtension.class)
+public class StockConsumptionEngineTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private StockSlotRepository stockSlotRepository;
+
+    @Mock
+    private StockLedgerJdbcRepository stockLedgerJdbcRepository;
+
+    @Mock
+    private StockMovementRepository stockMovementRepository;
+
+    @Mock
+    private ProductCatalogCache productCatalogCache;
+
+    @Test
+    void testPlan_Fefo_ConsumesSoonestExpiryFirst() {
+        Product dye = product("Teintures");
+        // Le lot le plus ancien expire en dernier, le lot sans date passe après tous les autres
+        StockSlot oldest = slot(1L, dye, 10.0, 100.0, 3, LocalDate.now().plusMonths(6));
+        StockSlot noExpiry = slot(2L, dye, 10.0, 100.0, 2, null);
+        StockSlot soonest = slot(3L, dye, 10.0, 100.0, 1, LocalDate.now().plusDays(10));
+        when(stockSlotRepository.lockAvailableByProductIds(anyCollection())).thenReturn(List.of(oldest, noExpiry, soonest));
+
+        ConsumptionPlan plan = engine(Map.of("Teintures", AllocationMethod.FEFO)).plan(List.of(item(dye, 25.0)));
+
+        assertEquals(List.of(3L, 1L, 2L), plan.debits().stream().map(SlotDebit::slotId).toList());
+        assertEquals(5.0, plan.debits().get(2).quantity(), 0.001);
+    }
+
+    @Test
+    void testPlan_Lifo_ConsumesNewestFirstAcrossLines() {
+        Product product = product("Fils");
+        StockSlot older = slot(1L, product, 10.0, 100.0, 2, null);
+        StockSlot newer = slot(2L, product, 10.0, 120.0, 1, null);
+        when(stockSlotRepository.lockAvailableByProductIds(anyCollection())).thenReturn(List.of(older, newer));
+
+        // Deux lignes du même produit partagent la même file de lots
+        ConsumptionPlan plan = engine(Map.of("Fils", AllocationMethod.LIFO))
+                .plan(List.of(item(product, 6.0), item(product, 6.0)));
+
+        assertEquals(List.of(2L, 2L, 1L), plan.debits().stream().map(SlotDebit::slotId).toList());
+        assertEquals(-12.0, plan.productDeltas().get(product.getId()), 0.001);
+    }
+
+    @Test
+    void testPlan_WeightedAverage_DebitsAtAverageCost() {
+        Product product = product("Produits chimiques");
+        StockSlot older = slot(1L, product, 10.0, 100.0, 2, null);
+        StockSlot newer = slot(2L, product, 10.0, 120.0, 1, null);
+        when(stockSlotRepository.lockAvailableByProductIds(anyCollection())).thenReturn(List.of(older, newer));
+        when(stockLedgerJdbcRepository.findAverageCosts(anyCollection())).thenReturn(Map.of(product.getId(), 110.0));
+
+        ConsumptionPlan plan = engine(Map.of("Produits chimiques", AllocationMethod.WEIGHTED_AVERAGE))
+                .plan(List.of(item(product, 15.0)));
+
+        assertEquals(List.of(1L, 2L), plan.debits().stream().map(SlotDebit::slotId).toList());
+        plan.debits().forEach(debit -> assertEquals(110.0, debit.unitCost(), 0.001));
+    }
+
+    @Test
+    void testPlan_DefaultFifo_DoesNotReadAverageCosts() {
+        Product product = product("Autre");
+        StockSlot older = slot(1L, product, 10.0, 100.0, 2, null);
+        StockSlot newer = slot(2L, product, 10.0, 120.0, 1, null);
+        when(stockSlotRepository.lockAvailableByProductIds(anyCollection())).thenReturn(List.of(newer, older));
+
+        ConsumptionPlan plan = engine(Map.of()).plan(List.of(item(product, 12.0)));
+
+        assertEquals(List.of(1L, 2L), plan.debits().stream().map(SlotDebit::slotId).toList());
+        assertEquals(100.0, plan.debits().get(0).unitCost(), 0.001);
+        assertEquals(List.of(new BigDecimal("1240.0000")), plan.itemCosts());
+        verify(stockLedgerJdbcRepository, never()).findAverageCosts(anyCollection());
+    }
+
+    private StockConsumptionEngine engine(Map<String, AllocationMethod> methodByCategory) {
+        return new StockConsumptionEngine(productRepository, stockSlotRepository, stockLedgerJdbcRepository,
+                stockMovementRepository, productCatalogCache,
+                ExitSlipServiceTest.allocationStrategyResolver(methodByCategory));
+    }
+
+    private static Product product(String category) {
+        Product product = new Product();
+        product.setId(1L);
+        product.setName("Produit " + category);
+        product.setCategory(category);
+        return product;
+    }
+
+    private static StockSlot slot(Long id, Product product, double available, double unitPrice, int ageInDays,
+                                  LocalDate expiryDate) {
+        StockSlot slot = new StockSlot();
+        slot.setId(id);
+        slot.setProduct(product);
+        slot.setQuantity(available);
+        slot.setAvailableQuantity(available);
+        slot.setUnitPrice(unitPrice);
+        slot.setEntryDate(LocalDateTime.now().minusDays(ageInDays));
+        slot.setExpiryDate(expiryDate);
+        return slot;
+    }
+
+    private static ExitSlipItem item(Product product, double quantity) {
+        ExitSlipItem item = new ExitSlipItem();
+        item.setProduct(product);
+        item.setRequestedQuantity(BigDecimal.valueOf(quantity));
+        return item;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.tricol.tricolspringbootrestapi.service;
+
+import com.example.tricol.tricolspringbootrestapi.controller.StockEventController;
+import com.example.tricol.tricolspringbootrestapi.repository.StockLedgerJdbcRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.StockLedgerJdbcRepository.StockLevel;
+import com.example.tricol.tricolspringbootrestapi.service.impl.StockEventStream;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/*
+    Flux SSE des niveaux de stock : filtres, publication après commit, seuils et déconnexion des abonnés trop lents.
+    Les abonnés passent par le vrai contrôleur (MockMvc) pour que les émetteurs soient initialisés.
+ */
+public class StockEventStreamTest {
+
+    private StockLedgerJdbcRepository stockLedgerRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private StockEventStream stream;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        stockLedgerRepository = mock(StockLedgerJdbcRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        // Tampon de 2 événements par abonné
+        stream = new StockEventStream(stockLedgerRepository, meterRegistry, 1, 2, 10, Duration.ofMinutes(1));
+        mockMvc = MockMvcBuilders.standaloneSetup(new StockEventController(stream)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stream.stop();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testStockChanged_FilteredByProductOrCategory() throws Exception {
+        MvcResult byProduct = subscribe("/stock/events?productId=1");
+        MvcResult byCategory = subscribe("/stock/events?category=Teinture");
+        MvcResult all = subscribe("/stock/events");
+        when(stockLedgerRepository.findStockLevels(anyCollection())).thenReturn(List.of(
+                new StockLevel(1L, "FIL-001", "Fil", 50.0, 10.0),
+                new StockLevel(2L, "TEI-001", "Teinture", 30.0, 10.0)));
+
+        stream.stockChanged(StockEventStream.SOURCE_ORDER_RECEIPT, 7L, Map.of(1L, 5.0, 2L, 5.0));
+
+        awaitContent(all, "\"productId\":2");
+        awaitContent(byProduct, "\"productId\":1");
+        awaitContent(byCategory, "\"productId\":2");
+        assertTrue(content(all).contains("\"productId\":1"));
+        assertFalse(content(byProduct).contains("\"productId\":2"));
+        assertFalse(content(byCategory).contains("\"productId\":1"));
+    }
+
+    @Test
+    void testStockChanged_PublishedOnlyAfterCommit() throws Exception {
+        MvcResult subscriber = subscribe("/stock/events");
+        when(stockLedgerRepository.findStockLevels(anyCollection())).thenReturn(List.of(
+                new StockLevel(1L, "FIL-001", "Fil", 50.0, 10.0)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        stream.stockChanged(StockEventStream.SOURCE_EXIT_SLIP, 3L, Map.of(1L, -5.0));
+
+        // Rien n'est envoyé tant que la transaction n'a pas validé
+        Thread.sleep(100);
+        assertFalse(content(subscriber).contains("STOCK_CHANGED"));
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        awaitContent(subscriber, "\"sourceId\":3");
+        assertTrue(content(subscriber).contains("event:STOCK_CHANGED"));
+    }
+
+    @Test
+    void testStockChanged_ThresholdCrossingEventTypes() throws Exception {
+        MvcResult subscriber = subscribe("/stock/events");
+        // Produit 1 : 13 -> 8 sous un seuil de 10 ; produit 2 : 7 -> 12
+        when(stockLedgerRepository.findStockLevels(anyCollection())).thenReturn(List.of(
+                new StockLevel(1L, "FIL-001", "Fil", 8.0, 10.0),
+                new StockLevel(2L, "TEI-001", "Teinture", 12.0, 10.0)));
+
+        stream.stockChanged(StockEventStream.SOURCE_EXIT_SLIP, 4L, Map.of(1L, -5.0, 2L, 5.0));
+
+        awaitContent(subscriber, "event:LOW_STOCK");
+        awaitContent(subscriber, "event:RESTOCKED");
+        assertFalse(content(subscriber).contains("event:STOCK_CHANGED"));
+    }
+
+    @Test
+    void testStockChanged_SubscriberWithFullBufferDisconnected() throws Exception {
+        MvcResult slow = subscribe("/stock/events");
+        MvcResult unaffected = subscribe("/stock/events?productId=1");
+        // Trois événements d'un coup pour un tampon de deux : l'abonné sans filtre déborde
+        when(stockLedgerRepository.findStockLevels(anyCollection())).thenReturn(List.of(
+                new StockLevel(1L, "FIL-001", "Fil", 50.0, 10.0),
+                new StockLevel(2L, "TEI-001", "Teinture", 30.0, 10.0),
+                new StockLevel(3L, "BOB-001", "Bobine", 20.0, 10.0)));
+
+        stream.stockChanged(StockEventStream.SOURCE_ORDER_RECEIPT, 9L, Map.of(1L, 1.0, 2L, 1.0, 3L, 1.0));
+
+        awaitContent(unaffected, "\"productId\":1");
+        assertEquals(1.0, meterRegistry.get("stock.stream.dropped").counter().count());
+        assertEquals(1.0, meterRegistry.get("stock.stream.subscribers").gauge().value());
+        assertFalse(content(slow).contains("productId"));
+    }
+
+    private MvcResult subscribe(String uri) throws Exception {
+        MvcResult result = mockMvc.perform(get(uri)).andReturn();
+        assertTrue(result.getRequest().isAsyncStarted());
+        return result;
+    }
+
+    private static String content(MvcResult result) throws Exception {
+        return result.getResponse().getContentAsString();
+    }
+
+    private static void awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!content(result).contains(expected)) {
+            assertTrue(System.nanoTime() < deadline, "Not received: " + expected + " in " + content(result));
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.tricol.tricolspringbootrestapi.service;
+
+import com.example.tricol.tricolspringbootrestapi.dto.response.StockAsOfResponse;
+import com.example.tricol.tricolspringbootrestapi.repository.ProductRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.StockHistoryJdbcRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.StockHistoryJdbcRepository.LotQuantity;
+import com.example.tricol.tricolspringbootrestapi.service.impl.StockHistoryServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class StockHistoryServiceTest {
+
+    @Mock
+    private StockHistoryJdbcRepository stockHistoryRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @InjectMocks
+    private StockHistoryServiceImpl stockHistoryService;
+
+    @Test
+    void testProductAsOf_ReplaysMovementsSinceNearestCheckpoint() {
+        LocalDateTime checkpointAt = LocalDateTime.of(2025, 1, 1, 2, 25);
+        LocalDateTime at = LocalDateTime.of(2025, 1, 15, 12, 0);
+        when(productRepository.existsById(1L)).thenReturn(true);
+        when(stockHistoryRepository.findLatestCompletedCheckpoint(at)).thenReturn(Optional.of(checkpointAt));
+        // Point de contrôle: lot 10 (40 @ 100) et lot 11 (20 @ 110)
+        when(stockHistoryRepository.findCheckpointLots(checkpointAt, List.of(1L))).thenReturn(List.of(
+                new LotQuantity(1L, 10L, 40.0, 100.0),
+                new LotQuantity(1L, 11L, 20.0, 110.0)));
+        // Depuis: lot 10 vidé, lot 11 entamé de 5, nouveau lot 12 reçu
+        when(stockHistoryRepository.sumMovementsByLot(List.of(1L), checkpointAt, at)).thenReturn(List.of(
+                new LotQuantity(1L, 10L, -40.0, 100.0),
+                new LotQuantity(1L, 11L, -5.0, 110.0),
+                new LotQuantity(1L, 12L, 30.0, 120.0)));
+
+        StockAsOfResponse response = stockHistoryService.getProductStockAsOf(1L, at);
+
+        assertEquals(checkpointAt, response.getCheckpointAt());
+        assertEquals(2, response.getLines().size(), "Le lot vidé n'apparaît plus");
+        assertEquals(45.0, response.getQuantity(), 0.001);
+        assertEquals(15 * 110.0 + 30 * 120.0, response.getValue(), 0.001);
+    }
+
+    @Test
+    void testProductAsOf_BeforeFirstCheckpoint_ReplaysFromFirstMovement() {
+        LocalDateTime at = LocalDateTime.of(2024, 6, 1, 0, 0);
+        when(productRepository.existsById(1L)).thenReturn(true);
+        when(stockHistoryRepository.findLatestCompletedCheckpoint(at)).thenReturn(Optional.empty());
+        when(stockHistoryRepository.sumMovementsByLot(List.of(1L), null, at))
+                .thenReturn(List.of(new LotQuantity(1L, 10L, 40.0, 100.0)));
+
+        StockAsOfResponse response = stockHistoryService.getProductStockAsOf(1L, at);
+
+        assertNull(response.getCheckpointAt());
+        assertEquals(4000.0, response.getValue(), 0.001);
+        verify(stockHistoryRepository, never()).findCheckpointLots(any(), anyList());
+    }
+}
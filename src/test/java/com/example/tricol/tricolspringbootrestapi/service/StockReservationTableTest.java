@@ -0,0 +1,113 @@
+package com.example.tricol.tricolspringbootrestapi.service;
+
+import com.example.tricol.tricolspringbootrestapi.exception.InsufficientStockException;
+import com.example.tricol.tricolspringbootrestapi.repository.ExitSlipRepository;
+import com.example.tricol.tricolspringbootrestapi.service.impl.StockReservationTable;
+import com.example.tricol.tricolspringbootrestapi.service.impl.StockReservationTable.Line;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/*
+    Réservations des bons de sortie en brouillon : disponible à promettre, libération et expiration.
+ */
+public class StockReservationTableTest {
+
+    private MutableClock clock;
+    private StockReservationTable reservations;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2026-01-05T08:00:00Z"));
+        reservations = new StockReservationTable(mock(ExitSlipRepository.class), clock, Duration.ofMinutes(30),
+                Duration.ofSeconds(1), 64);
+    }
+
+    @Test
+    void testReserve_SecondDraftRefusedUntilFirstReleased() {
+        reservations.reserve(1L, List.of(new Line(10L, "Fil coton", 100.0, 70.0)));
+        assertEquals(30.0, reservations.availableToPromise(10L, 100.0), 0.001);
+
+        // Le deuxième brouillon dépasse le disponible à promettre
+        InsufficientStockException ex = assertThrows(InsufficientStockException.class,
+                () -> reservations.reserve(2L, List.of(new Line(10L, "Fil coton", 100.0, 40.0))));
+        assertTrue(ex.getMessage().contains("Available to promise: 30.00"));
+        assertFalse(reservations.isReserved(2L));
+
+        reservations.release(1L);
+        reservations.reserve(2L, List.of(new Line(10L, "Fil coton", 100.0, 40.0)));
+        assertEquals(40.0, reservations.reserved(10L), 0.001);
+    }
+
+    @Test
+    void testReserve_AllLinesOrNone() {
+        reservations.reserve(1L, List.of(new Line(20L, "Teinture bleue", 10.0, 8.0)));
+
+        // La première ligne passe, la seconde échoue : rien ne doit rester réservé pour ce bon
+        assertThrows(InsufficientStockException.class, () -> reservations.reserve(2L, List.of(
+                new Line(10L, "Fil coton", 100.0, 50.0),
+                new Line(20L, "Teinture bleue", 10.0, 5.0))));
+
+        assertEquals(0.0, reservations.reserved(10L), 0.001);
+        assertEquals(8.0, reservations.reserved(20L), 0.001);
+    }
+
+    @Test
+    void testReserve_LinesOfSameProductAreAddedUp() {
+        assertThrows(InsufficientStockException.class, () -> reservations.reserve(1L, List.of(
+                new Line(10L, "Fil coton", 100.0, 60.0),
+                new Line(10L, "Fil coton", 100.0, 60.0))));
+        assertEquals(0.0, reservations.reserved(10L), 0.001);
+    }
+
+    @Test
+    void testExpireDue_ReleasesAfterTtlOnly() {
+        reservations.reserve(1L, List.of(new Line(10L, "Fil coton", 100.0, 70.0)));
+
+        clock.advance(Duration.ofMinutes(29));
+        reservations.expireDue();
+        assertTrue(reservations.isReserved(1L));
+
+        // Bien au-delà d'un tour de roue (64 s) : l'échéance attend son tour puis expire
+        clock.advance(Duration.ofMinutes(1).plusSeconds(1));
+        reservations.expireDue();
+        assertFalse(reservations.isReserved(1L));
+        assertEquals(100.0, reservations.availableToPromise(10L, 100.0), 0.001);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        private void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
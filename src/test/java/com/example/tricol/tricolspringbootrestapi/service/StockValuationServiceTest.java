@@ -0,0 +1,82 @@
+package com.example.tricol.tricolspringbootrestapi.service;
+
+import com.example.tricol.tricolspringbootrestapi.dto.response.ValuationReconciliationResponse;
+import com.example.tricol.tricolspringbootrestapi.enums.AllocationMethod;
+import com.example.tricol.tricolspringbootrestapi.repository.StockValuationJdbcRepository;
+import com.example.tricol.tricolspringbootrestapi.repository.StockValuationJdbcRepository.ProductTotals;
+import com.example.tricol.tricolspringbootrestapi.service.impl.StockValuationServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/*
+    Réconciliation de la valorisation : valeur pour les produits au coût réel, quantité pour ceux au coût moyen.
+ */
+@ExtendWith(MockitoExtension.class)
+public class StockValuationServiceTest {
+
+    @Mock
+    private StockValuationJdbcRepository stockValuationRepository;
+
+    private StockValuationService stockValuationService;
+
+    @BeforeEach
+    void setUp() {
+        stockValuationService = new StockValuationServiceImpl(stockValuationRepository,
+                ExitSlipServiceTest.allocationStrategyResolver(Map.of("Teinture", AllocationMethod.WEIGHTED_AVERAGE)),
+                new BigDecimal("0.01"));
+    }
+
+    @Test
+    void testReconcile_AverageCostProductComparedOnQuantity() {
+        // Teinture : sorties au coût moyen, la valeur du registre ne suit plus les prix des lots restants
+        when(stockValuationRepository.ledgerTotalsByProduct()).thenReturn(Map.of(
+                1L, new ProductTotals("Teinture", 40.0, new BigDecimal("460.0000"))));
+        when(stockValuationRepository.slotTotalsByProduct()).thenReturn(Map.of(
+                1L, new ProductTotals("Teinture", 40.0, new BigDecimal("480.0000"))));
+
+        ValuationReconciliationResponse response = stockValuationService.reconcile();
+
+        assertTrue(response.isConsistent());
+        assertEquals(1, response.getProductsChecked());
+    }
+
+    @Test
+    void testReconcile_AverageCostQuantityDriftReported() {
+        when(stockValuationRepository.ledgerTotalsByProduct()).thenReturn(Map.of(
+                1L, new ProductTotals("Teinture", 40.0, new BigDecimal("460.0000"))));
+        when(stockValuationRepository.slotTotalsByProduct()).thenReturn(Map.of(
+                1L, new ProductTotals("Teinture", 35.0, new BigDecimal("420.0000"))));
+
+        ValuationReconciliationResponse response = stockValuationService.reconcile();
+
+        assertFalse(response.isConsistent());
+        ValuationReconciliationResponse.Mismatch mismatch = response.getMismatches().get(0);
+        assertEquals("QUANTITY", mismatch.getBasis());
+        assertEquals(0, new BigDecimal("5").compareTo(mismatch.getDifference()));
+    }
+
+    @Test
+    void testReconcile_ActualCostProductComparedOnValue() {
+        // Fil coton (FIFO) : mêmes quantités mais une valeur différente reste une anomalie
+        when(stockValuationRepository.ledgerTotalsByProduct()).thenReturn(Map.of(
+                2L, new ProductTotals("Fil", 10.0, new BigDecimal("1000.0000"))));
+        when(stockValuationRepository.slotTotalsByProduct()).thenReturn(Map.of(
+                2L, new ProductTotals("Fil", 10.0, new BigDecimal("950.0000"))));
+
+        ValuationReconciliationResponse response = stockValuationService.reconcile();
+
+        assertFalse(response.isConsistent());
+        ValuationReconciliationResponse.Mismatch mismatch = response.getMismatches().get(0);
+        assertEquals("VALUE", mismatch.getBasis());
+        assertEquals(0, new BigDecimal("50").compareTo(mismatch.getDifference()));
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.tricol.tricolspringbootrestapi.service.outbox;
+
+import com.example.tricol.tricolspringbootrestapi.enums.OutboxEventType;
+import com.example.tricol.tricolspringbootrestapi.repository.OutboxJdbcRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/*
+    OutboxDispatcher avec un dépôt et un gestionnaire de transactions simulés, sans base de données.
+ */
+public class OutboxDispatcherTest {
+
+    private final OutboxJdbcRepository outboxRepository = mock(OutboxJdbcRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final List<Long> delivered = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean markedDispatched = new AtomicBoolean();
+    private OutboxDispatcher dispatcher;
+
+    @AfterEach
+    void stopDispatcher() {
+        if (dispatcher != null) {
+            dispatcher.stop();
+        }
+    }
+
+    @Test
+    void testWakeUp_DeliversPendingEventsInIdOrderAndMarksThem() {
+        givenPending(event(1), event(2), event(3));
+        dispatcher = newDispatcher(events -> events.forEach(event -> delivered.add(event.id())));
+
+        dispatcher.start();
+        dispatcher.wakeUp();
+
+        verify(outboxRepository, timeout(2000)).markDispatched(List.of(1L, 2L, 3L));
+        assertEquals(List.of(1L, 2L, 3L), delivered);
+    }
+
+    @Test
+    void testSinkFailure_RetriesSameBatchAndRecordsAttempt() {
+        givenPending(event(1), event(2));
+        AtomicInteger calls = new AtomicInteger();
+        dispatcher = newDispatcher(events -> {
+            // Premier envoi en échec, le lot doit être renvoyé tel quel
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("sink down");
+            }
+            events.forEach(event -> delivered.add(event.id()));
+        });
+
+        dispatcher.start();
+        dispatcher.wakeUp();
+
+        verify(outboxRepository, timeout(2000)).recordFailedAttempt(List.of(1L, 2L));
+        verify(outboxRepository, timeout(2000)).markDispatched(List.of(1L, 2L));
+        verify(transactionManager, atLeastOnce()).rollback(any());
+        assertEquals(List.of(1L, 2L), delivered);
+    }
+
+    @Test
+    void testLockHeldByAnotherNode_DeliversNothing() throws Exception {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(outboxRepository.tryLockDispatcher()).thenReturn(false);
+        dispatcher = newDispatcher(events -> events.forEach(event -> delivered.add(event.id())));
+
+        dispatcher.start();
+        dispatcher.wakeUp();
+
+        verify(outboxRepository, timeout(2000).atLeastOnce()).tryLockDispatcher();
+        Thread.sleep(100);
+        verify(outboxRepository, never()).findPending(anyInt());
+        assertEquals(List.of(), delivered);
+    }
+
+    private void givenPending(OutboxEvent... events) {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(outboxRepository.tryLockDispatcher()).thenReturn(true);
+        when(outboxRepository.findPending(anyInt()))
+                .thenAnswer(invocation -> markedDispatched.get() ? List.of() : List.of(events));
+        doAnswer(invocation -> {
+            markedDispatched.set(true);
+            return null;
+        }).when(outboxRepository).markDispatched(any());
+    }
+
+    private OutboxDispatcher newDispatcher(Consumer<List<OutboxEvent>> sink) {
+        OutboxSink outboxSink = new OutboxSink() {
+            @Override
+            public String name() {
+                return "test";
+            }
+
+            @Override
+            public void deliver(List<OutboxEvent> events) {
+                sink.accept(events);
+            }
+        };
+        return new OutboxDispatcher(outboxRepository, List.of(outboxSink), transactionManager, new SimpleMeterRegistry(),
+                200, Duration.ofSeconds(10), Duration.ofMillis(20), Duration.ofMillis(100), Duration.ofDays(7));
+    }
+
+    private static OutboxEvent event(long id) {
+        return new OutboxEvent(id, OutboxEventType.EXIT_SLIP_VALIDATED, "EXIT_SLIP", id, LocalDateTime.now(), "{}");
+    }
+}